@@ -0,0 +1,91 @@
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * Простой измеритель производительности: прогрев, затем несколько итераций фиксированной длительности.
+ * Для каждого замера выводится пропускная способность и объем выделенной памяти.
+ * Результат операции накапливается в sink, чтобы JIT не мог выбросить вычисление.
+ */
+public class BenchmarkRunner {
+    private static final int BATCH_SIZE = 64;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private long sink;
+
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * Замер одной операции.
+     * @param name Название замера.
+     * @param operation Операция; один вызов считается одной операцией.
+     */
+    public void run(String name, LongSupplier operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation);
+        }
+
+        double[] opsPerSecond = new double[measurementIterations];
+        double totalOps = 0;
+        double totalBytes = 0;
+        double totalNanos = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long threadId = Thread.currentThread().getId();
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long startNanos = System.nanoTime();
+
+            long ops = runIteration(operation);
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+            opsPerSecond[i] = ops * 1e9 / elapsedNanos;
+            totalOps += ops;
+            totalBytes += bytes;
+            totalNanos += elapsedNanos;
+        }
+
+        double mean = totalOps * 1e9 / totalNanos;
+        double variance = 0;
+        for (double value : opsPerSecond) {
+            variance += (value - mean) * (value - mean);
+        }
+        double error = measurementIterations > 1 ? Math.sqrt(variance / (measurementIterations - 1)) : 0;
+
+        System.out.printf("%-40s %14.1f +- %10.1f ops/s %12.1f ns/op %12.1f B/op %10.1f MB/s%n",
+                name, mean, error, totalNanos / totalOps, totalBytes / totalOps, totalBytes * 1e3 / totalNanos);
+    }
+
+    /**
+     * Значение, накопленное из результатов операций. Выводится в конце, чтобы вычисления не считались мертвым кодом.
+     */
+    public long getSink() {
+        return sink;
+    }
+
+    /* ===== private ===== */
+
+    private long runIteration(LongSupplier operation) {
+        long ops = 0;
+        long deadline = System.nanoTime() + iterationNanos;
+        long accumulator = 0;
+
+        do {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                accumulator += operation.getAsLong();
+            }
+            ops += BATCH_SIZE;
+        } while (System.nanoTime() < deadline);
+
+        sink += accumulator;
+        return ops;
+    }
+}
@@ -0,0 +1,243 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Замеры генерации ходов, установки и отмены фишки, подсчета фишек, стабильных фишек, выбора хода роботом, perft и вывода поля.
+ * Для полей разных размеров (SIZES) отдельно замеряются генерация ходов, ход с отменой, perft и поиск роботов EXPERT и MCTS.
+ * Запуск: gradle :bench:run --args="[длительность итерации, мс] [часть названия замера]".
+ */
+public class EngineBenchmarks {
+    private static final int POSITIONS_COUNT = 64;
+    private static final long POSITIONS_SEED = 20221231;
+    private static final int PERFT_DEPTH = 6;
+    private static final int[] SIZES = {6, 8, 10, 12};
+    private static final int SIZE_PERFT_DEPTH = 5;
+    private static final int SIZE_SEARCH_NODES = 20000;
+    private static final int SIZE_MCTS_PLAYOUTS = 1000;
+
+    private static final GameField[] fields = new GameField[POSITIONS_COUNT];
+    private static final Color[] colors = new Color[POSITIONS_COUNT];
+    private static final int[] firstMoves = new int[POSITIONS_COUNT];
+    private static int positionIndex = 0;
+
+    public static void main(String[] args) {
+        long iterationMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        String filter = args.length > 1 ? args[1] : "";
+
+        setupPositions(BoardGeometry.DEFAULT_SIZE, fields, colors, firstMoves);
+
+        BenchmarkRunner runner = new BenchmarkRunner(3, 5, iterationMillis);
+        PlayerRobot robotEasyWhite = new PlayerRobot(Color.WHITE, RobotLevel.EASY);
+        PlayerRobot robotEasyBlack = new PlayerRobot(Color.BLACK, RobotLevel.EASY);
+        PlayerRobot robotHardWhite = new PlayerRobot(Color.WHITE, RobotLevel.HARD);
+        PlayerRobot robotHardBlack = new PlayerRobot(Color.BLACK, RobotLevel.HARD);
+
+        if ("getAvailableCoordsToPlaceChip".contains(filter)) {
+            runner.run("getAvailableCoordsToPlaceChip", () -> {
+                int i = nextPosition();
+                return fields[i].getAvailableCoordsToPlaceChip(colors[i]).size();
+            });
+        }
+        if ("getAvailableMovesMask".contains(filter)) {
+            runner.run("getAvailableMovesMask", () -> {
+                int i = nextPosition();
+                return fields[i].getAvailableMovesMask(colors[i]);
+            });
+        }
+        if ("canMakeMove".contains(filter)) {
+            runner.run("canMakeMove", () -> {
+                int i = nextPosition();
+                return fields[i].canMakeMove(colors[i]) ? 1 : 0;
+            });
+        }
+        if ("placeChip+undoMove".contains(filter)) {
+            runner.run("placeChip+undoMove", () -> {
+                int i = nextPosition();
+                fields[i].placeChip(firstMoves[i], colors[i]);
+                long hash = fields[i].getHash();
+                fields[i].undoMove(1);
+                return hash;
+            });
+        }
+        if ("getFieldStats".contains(filter)) {
+            runner.run("getFieldStats", () -> {
+                int i = nextPosition();
+                return fields[i].getFieldStats().whiteChips;
+            });
+        }
+        if ("Stability.getStableDiscs".contains(filter)) {
+            long validMask = BoardGeometry.getDefault().getValidMask();
+            runner.run("Stability.getStableDiscs", () -> {
+                int i = nextPosition();
+                return Stability.getStableDiscs(fields[i].getChipsMask(colors[i]),
+                        fields[i].getChipsMask(colors[i].getOppositeColor()), validMask);
+            });
+        }
+        if ("PlayerRobot.easy".contains(filter)) {
+            runner.run("PlayerRobot.easy", () -> {
+                int i = nextPosition();
+                return makeRobotMove(i, colors[i] == Color.WHITE ? robotEasyWhite : robotEasyBlack);
+            });
+        }
+        if ("PlayerRobot.hard".contains(filter)) {
+            runner.run("PlayerRobot.hard", () -> {
+                int i = nextPosition();
+                return makeRobotMove(i, colors[i] == Color.WHITE ? robotHardWhite : robotHardBlack);
+            });
+        }
+        if ("FieldRenderer.plain".contains(filter)) {
+            FieldRenderer renderer = new FieldRenderer(new PrintStream(OutputStream.nullOutputStream()), RenderMode.PLAIN);
+            runner.run("FieldRenderer.plain", () -> {
+                int i = nextPosition();
+                renderer.render(fields[i], colors[i]);
+                return i;
+            });
+        }
+        if ("FieldRenderer.ansi".contains(filter)) {
+            FieldRenderer renderer = new FieldRenderer(new PrintStream(OutputStream.nullOutputStream()), RenderMode.ANSI);
+            runner.run("FieldRenderer.ansi", () -> {
+                int i = nextPosition();
+                renderer.render(fields[i], colors[i]);
+                return i;
+            });
+        }
+        if ("perft".contains(filter)) {
+            GameField startField = new GameField();
+            startField.setupStartState();
+            runner.run("perft(" + PERFT_DEPTH + ")", () -> {
+                Perft perft = new Perft();
+                perft.run(startField, Color.BLACK, PERFT_DEPTH);
+                return perft.leaves;
+            });
+        }
+
+        for (int size : SIZES) {
+            runSizeBenchmarks(runner, size, filter);
+        }
+
+        System.out.printf("sink: %d%n", runner.getSink());
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Замеры для поля size x size на своем наборе позиций.
+     */
+    private static void runSizeBenchmarks(BenchmarkRunner runner, int size, String filter) {
+        String suffix = " " + size + "x" + size;
+        GameField[] sizeFields = new GameField[POSITIONS_COUNT];
+        Color[] sizeColors = new Color[POSITIONS_COUNT];
+        int[] sizeFirstMoves = new int[POSITIONS_COUNT];
+        setupPositions(size, sizeFields, sizeColors, sizeFirstMoves);
+        int[] squares = new int[BoardGeometry.MAX_SQUARES_COUNT];
+
+        if (("getAvailableSquares" + suffix).contains(filter)) {
+            runner.run("getAvailableSquares" + suffix, () -> {
+                int i = nextPosition();
+                return sizeFields[i].getAvailableSquares(sizeColors[i], squares);
+            });
+        }
+        if (("placeChip+undoMove" + suffix).contains(filter)) {
+            runner.run("placeChip+undoMove" + suffix, () -> {
+                int i = nextPosition();
+                sizeFields[i].placeChip(sizeFirstMoves[i], sizeColors[i]);
+                long hash = sizeFields[i].getHash();
+                sizeFields[i].undoMove(1);
+                return hash;
+            });
+        }
+        if (("getChipsCount" + suffix).contains(filter)) {
+            runner.run("getChipsCount" + suffix, () -> {
+                int i = nextPosition();
+                return sizeFields[i].getChipsCount(sizeColors[i]);
+            });
+        }
+        if (("getFrontierCount" + suffix).contains(filter)) {
+            runner.run("getFrontierCount" + suffix, () -> {
+                int i = nextPosition();
+                return sizeFields[i].getFrontierCount(sizeColors[i]);
+            });
+        }
+        if (("perft" + suffix).contains(filter)) {
+            GameField startField = new GameField(size);
+            startField.setupStartState();
+            runner.run("perft(" + SIZE_PERFT_DEPTH + ")" + suffix, () -> {
+                Perft perft = new Perft();
+                perft.run(startField, Color.BLACK, SIZE_PERFT_DEPTH);
+                return perft.leaves;
+            });
+        }
+        if (("SearchEngine" + suffix).contains(filter)) {
+            SearchConfig searchConfig = new SearchConfig();
+            searchConfig.threadsCount = 1;
+            searchConfig.timeLimitMillis = 0;
+            searchConfig.nodeLimit = SIZE_SEARCH_NODES;
+            searchConfig.instrumentation = false;
+            SearchEngine searchEngine = new SearchEngine(searchConfig);
+            runner.run("SearchEngine(" + SIZE_SEARCH_NODES + ")" + suffix, () -> {
+                int i = nextPosition();
+                return searchEngine.search(sizeFields[i], sizeColors[i]).bestSquare;
+            });
+        }
+        if (("MctsEngine" + suffix).contains(filter)) {
+            SearchConfig searchConfig = new SearchConfig();
+            searchConfig.threadsCount = 1;
+            searchConfig.timeLimitMillis = 0;
+            searchConfig.nodeLimit = SIZE_MCTS_PLAYOUTS;
+            searchConfig.mctsTreeSizeMb = 8;
+            MctsEngine mctsEngine = new MctsEngine(searchConfig);
+            runner.run("MctsEngine(" + SIZE_MCTS_PLAYOUTS + ")" + suffix, () -> {
+                int i = nextPosition();
+                return mctsEngine.search(sizeFields[i], sizeColors[i]).bestSquare;
+            });
+        }
+    }
+
+    /**
+     * Набор позиций середины и конца партии из случайных партий с фиксированным зерном.
+     */
+    private static void setupPositions(int size, GameField[] fields, Color[] colors, int[] firstMoves) {
+        Random random = new Random(POSITIONS_SEED);
+        int[] squares = new int[BoardGeometry.MAX_SQUARES_COUNT];
+
+        int created = 0;
+        while (created < POSITIONS_COUNT) {
+            GameField field = new GameField(size);
+            field.setupStartState();
+            Color color = Color.BLACK;
+            // для поля 8x8: от 10 до 54 ходов
+            int plies = size + 2 + random.nextInt(size * size * 45 / 64);
+
+            for (int ply = 0; ply < plies; ply++) {
+                int count = field.getAvailableSquares(color, squares);
+                if (count == 0) {
+                    color = color.getOppositeColor();
+                    continue;
+                }
+
+                field.placeChip(squares[random.nextInt(count)], color);
+                color = color.getOppositeColor();
+            }
+
+            if (field.getAvailableSquares(color, squares) != 0) {
+                fields[created] = field;
+                colors[created] = color;
+                firstMoves[created] = squares[0];
+                created++;
+            }
+        }
+    }
+
+    private static int nextPosition() {
+        positionIndex = (positionIndex + 1) % POSITIONS_COUNT;
+        return positionIndex;
+    }
+
+    private static long makeRobotMove(int index, PlayerRobot robot) {
+        robot.makeNextMove(fields[index]);
+        long hash = fields[index].getHash();
+        fields[index].undoMove(1);
+        return hash;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Результат анализа одной позиции (см. PositionAnalyzer).
+ */
+public class AnalysisResult {
+    /**
+     * Порядковый номер позиции во входном потоке, начиная с 0.
+     */
+    public long index;
+    public String position;
+
+    /**
+     * Текст ошибки, если позицию не удалось разобрать, иначе null.
+     */
+    public String error = null;
+
+    /**
+     * Цвет игрока, для которого ищется ход. null - если партия в позиции завершена.
+     */
+    public Color color = null;
+    public SearchResult searchResult = null;
+
+    public boolean isGameOver() {
+        return error == null && color == null;
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return String.format("%d\tошибка: %s", index, error);
+        }
+        if (isGameOver()) {
+            return String.format("%d\tпартия завершена", index);
+        }
+
+        return String.format("%d\t%s\t%s\t%d\t%d%s\t%s", index, color == Color.BLACK ? "X" : "O",
+                searchResult.geometry.squareToString(searchResult.bestSquare), searchResult.score,
+                searchResult.depth, searchResult.exact ? "!" : "", searchResult.getPrincipalVariationString());
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Операции над битовым представлением поля.
+ * Поле хранится двумя числами long (по одному на цвет), клетка (x, y) соответствует биту x * 8 + y.
+ * Поля меньше 8x8 занимают в этой раскладке строки и столбцы с наименьшими номерами (см. BoardGeometry).
+ */
+public class BitBoard {
+    public static final int SQUARES_COUNT = 64;
+    public static final int DIRECTIONS_COUNT = 8;
+
+    /**
+     * Сдвиги индекса клетки для каждого направления.
+     * Порядок совпадает с GameField.DIRECTIONS: (0, 1), (0, -1), (1, 0), (1, 1), (1, -1), (-1, 0), (-1, 1), (-1, -1).
+     */
+    private static final int[] DIRECTION_SHIFTS = {1, -1, 8, 9, 7, -8, -7, -9};
+
+    private static final long NOT_FIRST_COLUMN  = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_LAST_COLUMN   = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Маски, отсекающие переход через край поля при сдвиге в соответствующем направлении.
+     */
+    private static final long[] DIRECTION_MASKS = {
+            NOT_FIRST_COLUMN, NOT_LAST_COLUMN, -1L, NOT_FIRST_COLUMN,
+            NOT_LAST_COLUMN, -1L, NOT_FIRST_COLUMN, NOT_LAST_COLUMN
+    };
+
+    /**
+     * Сдвиг всех фишек маски на одну клетку в заданном направлении.
+     * @param mask Маска клеток.
+     * @param direction Индекс направления.
+     * @return Сдвинутая маска. Клетки, ушедшие за край поля, отбрасываются.
+     */
+    public static long shift(long mask, int direction) {
+        int shift = DIRECTION_SHIFTS[direction];
+        long result = shift > 0 ? mask << shift : mask >>> -shift;
+        return result & DIRECTION_MASKS[direction];
+    }
+
+    /**
+     * Клетки маски вместе с соседними с ними (по восьми направлениям).
+     */
+    public static long dilate(long mask) {
+        long horizontal = mask | ((mask << 1) & NOT_FIRST_COLUMN) | ((mask >>> 1) & NOT_LAST_COLUMN);
+        return horizontal | (horizontal << 8) | (horizontal >>> 8);
+    }
+
+    /**
+     * Нахождение всех доступных ходов игрока.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @return Маска клеток, на которые можно поставить фишку.
+     */
+    public static long getMoves(long player, long opponent) {
+        return getMoves(player, opponent, -1L);
+    }
+
+    /**
+     * Нахождение всех доступных ходов игрока на поле меньше 8x8 (см. BoardGeometry).
+     * @param validMask Маска клеток поля: клетки вне ее не считаются пустыми.
+     */
+    public static long getMoves(long player, long opponent, long validMask) {
+        long empty = ~(player | opponent) & validMask;
+        long result = 0;
+
+        for (int dir = 0; dir < DIRECTIONS_COUNT; dir++) {
+            // на линии между фишкой и пустой клеткой может быть не больше шести фишек соперника
+            long candidates = shift(player, dir) & opponent;
+            candidates |= shift(candidates, dir) & opponent;
+            candidates |= shift(candidates, dir) & opponent;
+            candidates |= shift(candidates, dir) & opponent;
+            candidates |= shift(candidates, dir) & opponent;
+            candidates |= shift(candidates, dir) & opponent;
+            result |= shift(candidates, dir) & empty;
+        }
+
+        return result;
+    }
+
+    /**
+     * Нахождение фишек, которые будут перевернуты при установке фишки в клетку.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @param square Индекс клетки, в которую устанавливается фишка.
+     * @return Маска переворачиваемых фишек. 0 - если ход невозможен.
+     */
+    public static long getFlips(long player, long opponent, int square) {
+        long result = 0;
+
+        for (int dir = 0; dir < DIRECTIONS_COUNT; dir++) {
+            result |= getFlipsInDirection(player, opponent, square, dir);
+        }
+
+        return result;
+    }
+
+    /**
+     * Нахождение фишек, которые будут перевернуты в одном направлении при установке фишки в клетку.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @param square Индекс клетки, в которую устанавливается фишка.
+     * @param direction Индекс направления.
+     * @return Маска переворачиваемых фишек. 0 - если в этом направлении нет замыкания.
+     */
+    public static long getFlipsInDirection(long player, long opponent, int square, int direction) {
+        long ray = BoardTables.RAY_MASKS[square][direction];
+        long own = ray & player;
+        if (own == 0) {
+            return 0;
+        }
+
+        // ближайшая своя фишка на луче, клетки между ней и square должны быть заняты соперником
+        int nearest;
+        if (BoardTables.IS_ASCENDING_DIRECTION[direction]) {
+            nearest = Long.numberOfTrailingZeros(own);
+        } else {
+            nearest = 63 - Long.numberOfLeadingZeros(own);
+        }
+
+        long between = ray & ~BoardTables.RAY_MASKS[nearest][direction] & ~(1L << nearest);
+        if (between != 0 && (between & opponent) == between) {
+            return between;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Хеш позиции по маскам фишек игрока, который ходит, и соперника (без учета цвета).
+     */
+    public static long getPositionKey(long player, long opponent) {
+        long result = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 31);
+        result = (result ^ (result >>> 29)) * 0xBF58476D1CE4E5B9L;
+        return result ^ (result >>> 32);
+    }
+
+    /**
+     * Применение одного из 8 преобразований симметрии поля к маске.
+     * @param symmetry Биты: 1 - отражение x, 2 - отражение y, 4 - перестановка x и y (в этом порядке).
+     */
+    public static long transform(long mask, int symmetry) {
+        if ((symmetry & 1) != 0) {
+            mask = Long.reverseBytes(mask);
+        }
+        if ((symmetry & 2) != 0) {
+            mask = ((mask >>> 1) & 0x5555555555555555L) | ((mask & 0x5555555555555555L) << 1);
+            mask = ((mask >>> 2) & 0x3333333333333333L) | ((mask & 0x3333333333333333L) << 2);
+            mask = ((mask >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((mask & 0x0F0F0F0F0F0F0F0FL) << 4);
+        }
+        if ((symmetry & 4) != 0) {
+            long temp = 0x0F0F0F0F00000000L & (mask ^ (mask << 28));
+            mask ^= temp ^ (temp >>> 28);
+            temp = 0x3333000033330000L & (mask ^ (mask << 14));
+            mask ^= temp ^ (temp >>> 14);
+            temp = 0x5500550055005500L & (mask ^ (mask << 7));
+            mask ^= temp ^ (temp >>> 7);
+        }
+
+        return mask;
+    }
+
+    /**
+     * То же преобразование для поля size x size меньше 8x8, занимающего младшие строки и столбцы раскладки (см. BoardGeometry):
+     * после отражений фишки сдвигаются обратно в угол раскладки.
+     */
+    public static long transform(long mask, int symmetry, int size) {
+        int offset = 8 - size;
+        if ((symmetry & 1) != 0) {
+            mask = Long.reverseBytes(mask) >>> (8 * offset);
+        }
+        if ((symmetry & 2) != 0) {
+            mask = transform(mask, 2) >>> offset;
+        }
+        if ((symmetry & 4) != 0) {
+            mask = transform(mask, 4);
+        }
+
+        return mask;
+    }
+
+    /**
+     * Применение преобразования симметрии (см. transform) к индексу клетки.
+     */
+    public static int transformSquare(int square, int symmetry) {
+        int x = getX(square);
+        int y = getY(square);
+        if ((symmetry & 1) != 0) {
+            x = 7 - x;
+        }
+        if ((symmetry & 2) != 0) {
+            y = 7 - y;
+        }
+        if ((symmetry & 4) != 0) {
+            int temp = x;
+            x = y;
+            y = temp;
+        }
+
+        return toSquare(x, y);
+    }
+
+    /**
+     * Преобразование, обратное данному: отражения перестановочны, но идут до перестановки x и y.
+     */
+    public static int getInverseSymmetry(int symmetry) {
+        if ((symmetry & 4) == 0) {
+            return symmetry;
+        }
+
+        // после перестановки отражение x становится отражением y и наоборот
+        return 4 | ((symmetry & 1) << 1) | ((symmetry & 2) >> 1);
+    }
+
+    public static int toSquare(int x, int y) {
+        return x * 8 + y;
+    }
+
+    public static int getX(int square) {
+        return square >>> 3;
+    }
+
+    public static int getY(int square) {
+        return square & 7;
+    }
+}
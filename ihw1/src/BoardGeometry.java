@@ -0,0 +1,240 @@
+/**
+ * Размер поля и зависящие от него маски и преобразования координат.
+ * Поддерживаются квадратные поля четного размера от MIN_SIZE до MAX_SIZE.
+ * Поля до 8x8 хранятся в одном long в раскладке BitBoard (клетка (x, y) - бит x * 8 + y, биты вне поля не используются),
+ * поля больше - многословными масками (см. WideBitBoard), клетка (x, y) - бит x * size + y.
+ */
+public class BoardGeometry {
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 12;
+    public static final int DEFAULT_SIZE = 8;
+
+    /**
+     * Граница индексов клеток для всех размеров: индексы помещаются в байт и не совпадают с TranspositionTable.NO_MOVE.
+     */
+    public static final int MAX_SQUARES_COUNT = MAX_SIZE * MAX_SIZE;
+
+    private static final BoardGeometry[] GEOMETRIES = new BoardGeometry[MAX_SIZE + 1];
+
+    static {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2) {
+            GEOMETRIES[size] = new BoardGeometry(size);
+        }
+    }
+
+    private final int size;
+    private final boolean wide;
+    private final int stride;
+    private final int wordsCount;
+
+    /*
+     * Маски поля, углов и краев для полей до 8x8.
+     */
+    private final long validMask;
+    private final long cornersMask;
+    private final long bordersMask;
+
+    private final int[] cornerSquares;
+
+    /**
+     * Номер четверти поля для каждого индекса клетки (см. getQuadrant).
+     */
+    private final byte[] quadrants;
+
+    /**
+     * Маски клеток каждой четверти для полей до 8x8.
+     */
+    private final long[] quadrantMasks = new long[4];
+
+    public static BoardGeometry of(int size) {
+        if (!isSupportedSize(size)) {
+            throw new IllegalArgumentException("Неподдерживаемый размер поля: " + size);
+        }
+
+        return GEOMETRIES[size];
+    }
+
+    /**
+     * Поле до 8x8 по маске его клеток (см. getValidMask).
+     * @throws IllegalArgumentException Если маска не совпадает с маской поля поддерживаемого размера.
+     */
+    public static BoardGeometry ofValidMask(long validMask) {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2) {
+            if (!GEOMETRIES[size].wide && GEOMETRIES[size].validMask == validMask) {
+                return GEOMETRIES[size];
+            }
+        }
+
+        throw new IllegalArgumentException("Неподдерживаемая маска поля: " + Long.toHexString(validMask));
+    }
+
+    public static BoardGeometry getDefault() {
+        return GEOMETRIES[DEFAULT_SIZE];
+    }
+
+    public static boolean isSupportedSize(int size) {
+        return size >= MIN_SIZE && size <= MAX_SIZE && size % 2 == 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * true - поле больше 8x8 и хранится многословными масками; методы GameField с масками long для него недоступны.
+     */
+    public boolean isWide() {
+        return wide;
+    }
+
+    /**
+     * Количество 64-битных слов маски фишек одного цвета.
+     */
+    public int getWordsCount() {
+        return wordsCount;
+    }
+
+    public int getSquaresCount() {
+        return size * size;
+    }
+
+    /**
+     * Верхняя граница индексов клеток (не включая): для полей до 8x8 индексы идут с шагом 8 по строкам.
+     */
+    public int getSquareIndexBound() {
+        return wide ? size * size : BitBoard.SQUARES_COUNT;
+    }
+
+    public long getValidMask() {
+        return validMask;
+    }
+
+    public long getCornersMask() {
+        return cornersMask;
+    }
+
+    public long getBordersMask() {
+        return bordersMask;
+    }
+
+    /**
+     * Индексы четырех угловых клеток. Массив общий, изменять его нельзя.
+     */
+    public int[] getCornerSquares() {
+        return cornerSquares;
+    }
+
+    /**
+     * Номер четверти поля, в которой находится клетка: 0 - строки и столбцы из первой половины, 1 - столбцы из второй,
+     * 2 - строки из второй, 3 - строки и столбцы из второй.
+     */
+    public int getQuadrant(int square) {
+        return quadrants[square];
+    }
+
+    /**
+     * Маска клеток четверти поля до 8x8 (см. getQuadrant).
+     */
+    public long getQuadrantMask(int quadrant) {
+        return quadrantMasks[quadrant];
+    }
+
+    public int toSquare(int x, int y) {
+        return x * stride + y;
+    }
+
+    public int getX(int square) {
+        return square / stride;
+    }
+
+    public int getY(int square) {
+        return square % stride;
+    }
+
+    public Coords2D toCoords(int square) {
+        return new Coords2D(getX(square), getY(square));
+    }
+
+    public boolean isInside(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    public boolean isCorner(int square) {
+        if (!wide) {
+            return (cornersMask & (1L << square)) != 0;
+        }
+
+        return isCorner(getX(square), getY(square));
+    }
+
+    public boolean isBorder(int square) {
+        if (!wide) {
+            return (bordersMask & (1L << square)) != 0;
+        }
+
+        return isBorder(getX(square), getY(square));
+    }
+
+    public String squareToString(int square) {
+        return appendSquare(new StringBuilder(), square).toString();
+    }
+
+    /**
+     * Добавление записи клетки (см. squareToString) без создания строки.
+     */
+    public StringBuilder appendSquare(StringBuilder builder, int square) {
+        return GameField.appendCoords(builder, getX(square), getY(square));
+    }
+
+    /* ===== private ===== */
+
+    private BoardGeometry(int size) {
+        this.size = size;
+        this.wide = size > 8;
+        this.stride = wide ? size : 8;
+        this.wordsCount = (size * size + Long.SIZE - 1) / Long.SIZE;
+
+        long valid = 0;
+        long corners = 0;
+        long borders = 0;
+        if (!wide) {
+            for (int square = 0; square < BitBoard.SQUARES_COUNT; square++) {
+                int x = getX(square);
+                int y = getY(square);
+                if (!isInside(x, y)) {
+                    continue;
+                }
+                valid |= 1L << square;
+                if (isCorner(x, y)) {
+                    corners |= 1L << square;
+                }
+                if (isBorder(x, y)) {
+                    borders |= 1L << square;
+                }
+            }
+        }
+        this.validMask = valid;
+        this.cornersMask = corners;
+        this.bordersMask = borders;
+
+        int last = size - 1;
+        this.cornerSquares = new int[]{toSquare(0, 0), toSquare(0, last), toSquare(last, 0), toSquare(last, last)};
+
+        this.quadrants = new byte[getSquareIndexBound()];
+        int half = size / 2;
+        for (int square = 0; square < quadrants.length; square++) {
+            quadrants[square] = (byte) ((getX(square) < half ? 0 : 2) + (getY(square) < half ? 0 : 1));
+            if (!wide && (valid & (1L << square)) != 0) {
+                quadrantMasks[quadrants[square]] |= 1L << square;
+            }
+        }
+    }
+
+    private boolean isCorner(int x, int y) {
+        return (x == 0 || x == size - 1) && (y == 0 || y == size - 1);
+    }
+
+    private boolean isBorder(int x, int y) {
+        return x == 0 || x == size - 1 || y == 0 || y == size - 1;
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Заранее вычисленные таблицы поля: лучи из каждой клетки по каждому направлению,
+ * маски угловых и крайних клеток. Индексы клеток и направлений - как в BitBoard.
+ */
+public class BoardTables {
+    /**
+     * Смещения направлений в формате (x, y), порядок как у GameField.DIRECTIONS.
+     */
+    public static final int[] DIRECTION_X = {0, 0, 1, 1, 1, -1, -1, -1};
+    public static final int[] DIRECTION_Y = {1, -1, 0, 1, -1, 0, 1, -1};
+
+    public static final long CORNERS_MASK = 0x8100000000000081L;
+    public static final long BORDERS_MASK = 0xFF818181818181FFL;
+
+    /**
+     * Маски клеток луча [клетка][направление]: все клетки от соседней с данной до края поля, сама клетка не входит.
+     */
+    public static final long[][] RAY_MASKS;
+
+    /**
+     * true - если направление ведет в сторону увеличения индекса клетки.
+     */
+    public static final boolean[] IS_ASCENDING_DIRECTION;
+
+    static {
+        RAY_MASKS = new long[BitBoard.SQUARES_COUNT][BitBoard.DIRECTIONS_COUNT];
+        IS_ASCENDING_DIRECTION = new boolean[BitBoard.DIRECTIONS_COUNT];
+
+        for (int dir = 0; dir < BitBoard.DIRECTIONS_COUNT; dir++) {
+            IS_ASCENDING_DIRECTION[dir] = DIRECTION_X[dir] * 8 + DIRECTION_Y[dir] > 0;
+        }
+
+        for (int square = 0; square < BitBoard.SQUARES_COUNT; square++) {
+            for (int dir = 0; dir < BitBoard.DIRECTIONS_COUNT; dir++) {
+                int x = BitBoard.getX(square) + DIRECTION_X[dir];
+                int y = BitBoard.getY(square) + DIRECTION_Y[dir];
+                while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                    RAY_MASKS[square][dir] |= 1L << BitBoard.toSquare(x, y);
+                    x += DIRECTION_X[dir];
+                    y += DIRECTION_Y[dir];
+                }
+            }
+        }
+    }
+
+    public static boolean isCorner(int square) {
+        return (CORNERS_MASK & (1L << square)) != 0;
+    }
+
+    public static boolean isBorder(int square) {
+        return (BORDERS_MASK & (1L << square)) != 0;
+    }
+}
@@ -53,7 +53,7 @@ public class ConsoleScanner {
             }
 
             coords = GameField.stringToCoords(command);
-            if (coords == null || !GameField.isInField(coords)) {
+            if (coords == null || !field.isInField(coords)) {
                 System.out.println("Некорректный ввод. Попробуйте еще раз.");
             } else if (!field.canPlaceChip(coords, color)) {
                 System.out.println("Невозможно установить фишку в выбранную ячейку. Попробуйте еще раз.");
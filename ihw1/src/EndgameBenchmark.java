@@ -0,0 +1,63 @@
+/**
+ * Замер времени точного расчета окончаний на фиксированном наборе позиций.
+ * Позиции получены из партий робота с 14, 16, 18 и 20 пустыми клетками.
+ * Запуск: java EndgameBenchmark [максимальное количество пустых клеток].
+ */
+public class EndgameBenchmark {
+    /**
+     * Позиция в формате GameField.setupFromString, через пробел - сторона, которая ходит ('X' - черные, 'O' - белые),
+     * затем ожидаемая итоговая разность фишек для этой стороны.
+     */
+    private static final String[] POSITIONS = {
+            "--OOOOOO--OOXOXO--OOOXXO--OOOOXO--OOOXOO-OOOOOOO-XOXXXXO--OOOOXO X -12",
+            "XX------X-X-----XOOXOOOOXOOOXOOOXOOXOXOOXXOXXOOOXXOOOXO-XXXXXXX- O -44",
+            "--OO-X----OOXX-XOOOOOOOOOOOOXOOOOOOXOOOOOOOOOOOO--OXOX---XXXXXX- X -16",
+            "-XXXXXXX-OOOOOOO-XOOXOXO-XOOXOXOOOXXOOXOOOOOXOOO----OOOO-----O-O X 18",
+            "XXXXX---XXXXXX--XOOXOOXXXXOOXOXXXOOOXXOXXOOOOOOX---OOOOX-------- X 34",
+            "XXXXXX--OOOOOO---OOXO----OOOOOO-XXOXOOOXXOOOOOOXOXXXXX-XXXO----- X 50",
+            "OXXOOO--OOOOOO--OXXOXOOOOXXOOXOOXXXXOOOOXXXXXOOO---XXXO--------- X 2",
+            "-OOOOOO---OXOOXX--OOOXXXOOOOXXXX-OOOOXXX-XOXXXXX--OXOX----XXXX-- X -20",
+            "OOOOOOO--OOXXXX-OOOOOXXXOOOOOOOXOOOOOOOX---OOOOX---O--OX-------X X 36",
+            "---X-X---XXXOX-O-OOOOOOO-OOOOOOO--OOOXXO---OOXXO--OXOXOO-OOOOOOO X -24",
+            "--O-----OOOXXX--XOOXOOOXXXXXOOOXXXXOOOOXXXOOOO--XXOX-O--XXXX---- X 52",
+            "---XXXXX--OOXOOOOOOXXXXO--XXOXXX-XXXOOXX-OXOOOX---OXOO---XXXX--- X 6",
+            "--------X-------XXXXXXXXXOXOOXXXXOOXXOXXXOOXOOOXXXOOO-O-XXOO---O X 2",
+            "--------O-OX----OOOOXOOOOOOXOXOOOOOXOOXOOOOXOXOO--OXXX-O---XXXX- X 6",
+            "XOXX-O--XOOXXOX-XOOXXOO-XOXXXOX-XXOXOO--XXXOOO---XOOOO-----O---- X 0",
+            "OOOOOOOO-OXOXXXX-XOXXXXO-OXOOOXO--XXXOXO--XXXXOO---XX-X--------- X -26",
+    };
+
+    public static void main(String[] args) {
+        int maxEmpties = args.length > 0 ? Integer.parseInt(args[0]) : BitBoard.SQUARES_COUNT;
+
+        EndgameSolver solver = new EndgameSolver();
+        GameField field = new GameField();
+        long totalNodes = 0;
+        long totalNanos = 0;
+        int solvedCount = 0;
+
+        for (String position : POSITIONS) {
+            String[] parts = position.split(" ");
+            field.setupFromString(parts[0]);
+            Color color = parts[1].equals("X") ? Color.BLACK : Color.WHITE;
+            int expectedScore = Integer.parseInt(parts[2]);
+            if (parts[0].chars().filter(symbol -> symbol == '-').count() > maxEmpties) {
+                continue;
+            }
+
+            SearchResult result = solver.solve(field, color, Long.MAX_VALUE, 0);
+
+            System.out.printf("%2d пустых: ход %s, разность %+3d, %8d мс, %11d узлов, %9d узлов/с%s\n",
+                    result.depth, BoardGeometry.getDefault().squareToString(result.bestSquare), result.score,
+                    result.getTimeMillis(), result.nodes, result.getNodesPerSecond(),
+                    result.score == expectedScore ? "" : String.format(" ОШИБКА: ожидалось %+d", expectedScore));
+
+            totalNodes += result.nodes;
+            totalNanos += result.timeNanos;
+            solvedCount++;
+        }
+
+        System.out.printf("Позиций: %d, общее время %d мс, узлов %d, %d узлов/с.\n",
+                solvedCount, totalNanos / 1_000_000, totalNodes, totalNanos == 0 ? 0 : totalNodes * 1_000_000_000L / totalNanos);
+    }
+}
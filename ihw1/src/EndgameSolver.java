@@ -0,0 +1,370 @@
+/**
+ * Точный перебор окончания партии: находит итоговую разность фишек при игре обеих сторон без ошибок.
+ * Работает напрямую с битовыми масками (см. BitBoard), без GameField.
+ * Ходы упорядочиваются по возрастанию числа ответов соперника (fastest-first), на малом числе пустых клеток -
+ * по четности пустых клеток в четвертях поля, последняя пустая клетка считается отдельно.
+ * Перед перебором с сортировкой узел отсекается, если стабильные фишки соперника (см. Stability) не позволяют превысить alpha.
+ * Поля меньше 8x8 решаются в той же раскладке с маской клеток поля (см. BoardGeometry), поля больше 8x8 не поддерживаются.
+ */
+public class EndgameSolver {
+    public static final int MAX_SCORE = BitBoard.SQUARES_COUNT;
+
+    /**
+     * Начиная с этого количества пустых клеток используется сортировка ходов по мобильности соперника.
+     */
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    /**
+     * Начиная с этого количества пустых клеток результаты сохраняются в таблицу транспозиций.
+     */
+    private static final int TABLE_EMPTIES = 10;
+
+    private static final int TABLE_SIZE_MB = 8;
+    private static final int TIME_CHECK_INTERVAL = 4096;
+
+    private final TranspositionTable transpositionTable;
+
+    // буферы ходов для каждого количества пустых клеток, чтобы не выделять память в переборе
+    private final int[][] movesBuffer = new int[BitBoard.SQUARES_COUNT + 1][BitBoard.SQUARES_COUNT];
+    private final long[][] flipsBuffer = new long[BitBoard.SQUARES_COUNT + 1][BitBoard.SQUARES_COUNT];
+    private final int[][] keysBuffer = new int[BitBoard.SQUARES_COUNT + 1][BitBoard.SQUARES_COUNT];
+
+    /**
+     * Маска клеток поля текущего расчета: клетки вне ее не считаются пустыми.
+     */
+    private long validMask;
+    private int squaresCount;
+
+    /**
+     * Маски четвертей поля текущего расчета для упорядочивания по четности (см. BoardGeometry.getQuadrantMask).
+     */
+    private final long[] quadrants = new long[4];
+
+    private long nodes;
+    private long nodeLimit;
+    private long deadlineNanos;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+
+    public EndgameSolver() {
+        this(TABLE_SIZE_MB);
+    }
+
+    public EndgameSolver(int tableSizeMb) {
+        transpositionTable = new TranspositionTable(tableSizeMb);
+    }
+
+    /**
+     * Точный расчет лучшего хода.
+     * @param field Игровое поле.
+     * @param color Цвет игрока, который ходит.
+     * @param deadlineNanos Момент (System.nanoTime), после которого расчет прерывается. Long.MAX_VALUE - без ограничения.
+     * @param nodeLimit Ограничение количества узлов. 0 - без ограничения.
+     * @return Результат: score - итоговая разность фишек для игрока color, depth - количество пустых клеток.
+     * Если расчет прерван (см. isAborted), лучший ход и оценка не определены.
+     */
+    public SearchResult solve(GameField field, Color color, long deadlineNanos, long nodeLimit) {
+        SearchResult result = new SearchResult();
+        long startNanos = System.nanoTime();
+        prepare(field.getGeometry().getValidMask(), deadlineNanos, nodeLimit);
+
+        long player = field.getChipsMask(color);
+        long opponent = field.getChipsMask(color.getOppositeColor());
+        int empties = Long.bitCount(field.getEmptyMask());
+
+        result.depth = empties;
+        result.exact = true;
+
+        int count = generateSortedMoves(player, opponent, empties);
+        if (count == 0) {
+            result.score = solve(player, opponent, -MAX_SCORE, MAX_SCORE, empties);
+        } else {
+            int alpha = -MAX_SCORE - 1;
+            int[] moves = movesBuffer[empties];
+            long[] flips = flipsBuffer[empties];
+            for (int i = 0; i < count && !aborted; i++) {
+                long placed = 1L << moves[i];
+                int score = -solve(opponent & ~flips[i], player | placed | flips[i], -MAX_SCORE, -alpha, empties - 1);
+                if (!aborted && score > alpha) {
+                    alpha = score;
+                    result.bestSquare = moves[i];
+                }
+            }
+            result.score = alpha;
+        }
+
+        result.nodes = nodes;
+        result.timeNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    /**
+     * Расчет позиции с окном (alpha, beta) без выбора хода и без ограничений по времени и узлам.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @param validMask Маска клеток поля (см. BoardGeometry.getValidMask).
+     * @return Итоговая разность фишек для игрока player, если она внутри окна, иначе граница с той же стороны окна.
+     * Если расчет прерван (см. stop), результат не определен.
+     */
+    public int solveWindow(long player, long opponent, long validMask, int alpha, int beta) {
+        prepare(validMask, Long.MAX_VALUE, 0);
+        return solve(player, opponent, alpha, beta, Long.bitCount(~(player | opponent) & validMask));
+    }
+
+    /**
+     * Количество узлов последнего расчета.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Прерывание текущего расчета из другого потока.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /* ===== private ===== */
+
+    private void prepare(long validMask, long deadlineNanos, long nodeLimit) {
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.deadlineNanos = deadlineNanos;
+        this.aborted = false;
+        this.stopRequested = false;
+        transpositionTable.newSearch();
+        // таблица хранит позиции без размера поля, поэтому очищается при его смене
+        if (this.validMask != validMask) {
+            this.validMask = validMask;
+            this.squaresCount = Long.bitCount(validMask);
+            BoardGeometry geometry = BoardGeometry.ofValidMask(validMask);
+            for (int i = 0; i < quadrants.length; i++) {
+                quadrants[i] = geometry.getQuadrantMask(i);
+            }
+            transpositionTable.clear();
+        }
+    }
+
+    /**
+     * @return Итоговая разность фишек для игрока player.
+     */
+    private int solve(long player, long opponent, int alpha, int beta, int empties) {
+        if (empties == 1) {
+            nodes++;
+            return solveLastEmpty(player, opponent);
+        } else if (empties < FASTEST_FIRST_EMPTIES) {
+            return solveByParity(player, opponent, alpha, beta, empties);
+        } else {
+            return solveFastestFirst(player, opponent, alpha, beta, empties);
+        }
+    }
+
+    private int solveLastEmpty(long player, long opponent) {
+        int square = Long.numberOfTrailingZeros(~(player | opponent) & validMask);
+
+        int flipped = Long.bitCount(BitBoard.getFlips(player, opponent, square));
+        if (flipped != 0) {
+            return Long.bitCount(player) - Long.bitCount(opponent) + 2 * flipped + 1;
+        }
+
+        flipped = Long.bitCount(BitBoard.getFlips(opponent, player, square));
+        if (flipped != 0) {
+            return Long.bitCount(player) - Long.bitCount(opponent) - 2 * flipped - 1;
+        }
+
+        return Long.bitCount(player) - Long.bitCount(opponent);
+    }
+
+    /**
+     * Перебор без сортировки: сначала пустые клетки из четвертей с нечетным количеством пустых клеток.
+     */
+    private int solveByParity(long player, long opponent, int alpha, int beta, int empties) {
+        nodes++;
+        if (isLimitReached()) {
+            aborted = true;
+            return 0;
+        }
+
+        long empty = ~(player | opponent) & validMask;
+        long oddQuadrants = 0;
+        for (long quadrant : quadrants) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                oddQuadrants |= quadrant;
+            }
+        }
+
+        int best = -MAX_SCORE - 1;
+        for (int pass = 0; pass < 2; pass++) {
+            long candidates = pass == 0 ? empty & oddQuadrants : empty & ~oddQuadrants;
+            while (candidates != 0) {
+                int square = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+
+                long flips = BitBoard.getFlips(player, opponent, square);
+                if (flips == 0) {
+                    continue;
+                }
+
+                int score = -solve(opponent & ~flips, player | (1L << square) | flips, -beta, -alpha, empties - 1);
+                if (aborted) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            return best;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (best == -MAX_SCORE - 1) {
+            return solvePass(player, opponent, alpha, beta, empties);
+        }
+
+        return best;
+    }
+
+    private int solveFastestFirst(long player, long opponent, int alpha, int beta, int empties) {
+        nodes++;
+        if (isLimitReached()) {
+            aborted = true;
+            return 0;
+        }
+
+        // итоговая разность не больше squaresCount - 2 * (стабильные фишки соперника); их не больше всех его фишек
+        if (2 * Long.bitCount(opponent) >= squaresCount - alpha) {
+            int bound = squaresCount - 2 * Stability.getStableDiscsCount(opponent, player, validMask);
+            if (bound <= alpha) {
+                return bound;
+            }
+        }
+
+        long key = 0;
+        int originalAlpha = alpha;
+        if (empties >= TABLE_EMPTIES) {
+            key = BitBoard.getPositionKey(player, opponent);
+            long entry = transpositionTable.probe(key);
+            if (entry != 0) {
+                int score = TranspositionTable.getScore(entry);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT) {
+                    return score;
+                } else if (bound == TranspositionTable.BOUND_LOWER) {
+                    alpha = Integer.max(alpha, score);
+                } else {
+                    beta = Integer.min(beta, score);
+                }
+
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int count = generateSortedMoves(player, opponent, empties);
+        if (count == 0) {
+            return solvePass(player, opponent, alpha, beta, empties);
+        }
+
+        int[] moves = movesBuffer[empties];
+        long[] flips = flipsBuffer[empties];
+        int best = -MAX_SCORE - 1;
+        int bestSquare = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            long placed = 1L << moves[i];
+            int score = -solve(opponent & ~flips[i], player | placed | flips[i], -beta, -alpha, empties - 1);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestSquare = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (empties >= TABLE_EMPTIES) {
+            int bound;
+            if (best <= originalAlpha) {
+                bound = TranspositionTable.BOUND_UPPER;
+            } else if (best >= beta) {
+                bound = TranspositionTable.BOUND_LOWER;
+            } else {
+                bound = TranspositionTable.BOUND_EXACT;
+            }
+            transpositionTable.store(key, empties, bound, best, bestSquare);
+        }
+
+        return best;
+    }
+
+    /**
+     * Ход невозможен: либо партия закончена, либо ход переходит сопернику.
+     */
+    private int solvePass(long player, long opponent, int alpha, int beta, int empties) {
+        if (BitBoard.getMoves(opponent, player, validMask) == 0) {
+            return Long.bitCount(player) - Long.bitCount(opponent);
+        }
+
+        return -solve(opponent, player, -beta, -alpha, empties);
+    }
+
+    /**
+     * Заполнение буферов ходов для уровня empties, отсортированных по возрастанию мобильности соперника.
+     * @return Количество ходов.
+     */
+    private int generateSortedMoves(long player, long opponent, int empties) {
+        int[] moves = movesBuffer[empties];
+        long[] flips = flipsBuffer[empties];
+        int[] keys = keysBuffer[empties];
+
+        int count = 0;
+        long available = BitBoard.getMoves(player, opponent, validMask);
+        while (available != 0) {
+            int square = Long.numberOfTrailingZeros(available);
+            available &= available - 1;
+
+            long squareFlips = BitBoard.getFlips(player, opponent, square);
+            long newPlayer = player | (1L << square) | squareFlips;
+            long newOpponent = opponent & ~squareFlips;
+            int key = Long.bitCount(BitBoard.getMoves(newOpponent, newPlayer, validMask));
+
+            // сортировка вставкой: ходов немного
+            int i = count;
+            while (i > 0 && keys[i - 1] > key) {
+                moves[i] = moves[i - 1];
+                flips[i] = flips[i - 1];
+                keys[i] = keys[i - 1];
+                i--;
+            }
+            moves[i] = square;
+            flips[i] = squareFlips;
+            keys[i] = key;
+            count++;
+        }
+
+        return count;
+    }
+
+    private boolean isLimitReached() {
+        if (nodeLimit > 0 && nodes >= nodeLimit) {
+            return true;
+        }
+
+        return nodes % TIME_CHECK_INTERVAL == 0 && (stopRequested || System.nanoTime() >= deadlineNanos);
+    }
+}
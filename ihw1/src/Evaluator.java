@@ -0,0 +1,13 @@
+/**
+ * Статическая оценка позиции для поиска робота.
+ * Реализации не должны изменять свое состояние при оценке: один экземпляр используется всеми потоками поиска.
+ */
+public interface Evaluator {
+    /**
+     * Оценка позиции.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @return Оценка с точки зрения игрока player, по модулю меньше SearchEngine.WIN_SCORE.
+     */
+    int evaluate(long player, long opponent);
+}
@@ -1,62 +1,187 @@
+import java.io.PrintStream;
+
+/**
+ * Вывод поля. Кадр собирается в переиспользуемый буфер и выводится одним вызовом.
+ * В режиме RenderMode.ANSI после первого кадра выводятся только изменившиеся клетки; поле остается в начале экрана,
+ * текст под полем стирается при каждом кадре. Если экран прокручен или изменен другим выводом, следует вызвать invalidate.
+ * Статические методы выводят на консоль (System.out) обычным текстом.
+ * Экземпляр используется одним потоком.
+ */
 public class FieldRenderer {
-    private static final String POSSIBLE_MOVE_SYMBOL    = ".";
-    private static final String WHITE_CHIP_SYMBOL       = "●";
-    private static final String BLACK_CHIP_SYMBOL       = "○";
-    private static final String EMPTY_CELL_SYMBOL       = " ";
+    private static final char POSSIBLE_MOVE_SYMBOL    = '.';
+    private static final char WHITE_CHIP_SYMBOL       = '●';
+    private static final char BLACK_CHIP_SYMBOL       = '○';
+    private static final char EMPTY_CELL_SYMBOL       = ' ';
+
+    private static final String ESCAPE = "\033[";
+    private static final int CELL_WIDTH = 6;
+
+    private static final FieldRenderer console = new FieldRenderer(System.out, RenderMode.PLAIN);
+
+    private final PrintStream out;
+    private final RenderMode mode;
+    private final StringBuilder frame = new StringBuilder(4096);
+    private final int[] squares = new int[BoardGeometry.MAX_SQUARES_COUNT];
+
+    /*
+     * Символы клеток последнего кадра по строкам (для RenderMode.ANSI) и размер поля; 0 - кадра на экране нет.
+     */
+    private final char[] previousSymbols = new char[BoardGeometry.MAX_SQUARES_COUNT];
+    private int previousSize;
+
+    public FieldRenderer(PrintStream out, RenderMode mode) {
+        this.out = out;
+        this.mode = mode;
+    }
 
     public static void printPossibleMoves(GameField field, Color colorForPossibleMoves) {
-        var availableCoords = field.getAvailableCoordsToPlaceChip(colorForPossibleMoves);
-
-        if (!availableCoords.isEmpty()) {
-            System.out.print("Доступные ходы:");
-            for (int i = 0; i < availableCoords.size(); i++) {
-                if (i == availableCoords.size() - 1) {
-                    System.out.printf(" %s.\n", GameField.coordsToString(availableCoords.get(i)));
-                } else {
-                    System.out.printf(" %s,", GameField.coordsToString(availableCoords.get(i)));
-                }
-            }
-        }
+        console.renderPossibleMoves(field, colorForPossibleMoves);
     }
 
     public static void drawFieldSimple(GameField field) {
-        draw(field, false, null);
+        console.render(field, null);
     }
 
     public static void drawFieldWithPossibleMoves(GameField field, Color colorForPossibleMoves) {
-        draw(field, true, colorForPossibleMoves);
-    }
-
-    private static void draw(GameField field, boolean showPossibleMoves, Color colorForPossibleMoves) {
-        for (int i = 0; i < 8; i++) {
-            System.out.println("  |-----|-----|-----|-----|-----|-----|-----|-----|");
-            System.out.printf("%d |", i + 1);
-            for (int j = 0; j < 8; j++) {
-                Coords2D coords = new Coords2D(i, j);
-                if (showPossibleMoves && field.canPlaceChip(coords, colorForPossibleMoves)) {
-                    System.out.printf("  %s  |", POSSIBLE_MOVE_SYMBOL);
-                } else {
-                    System.out.printf("  %s  |", getCellSymbol(field, coords));
+        console.render(field, colorForPossibleMoves);
+    }
+
+    /**
+     * Вывод кадра.
+     * @param colorForPossibleMoves Цвет игрока, доступные ходы которого отмечаются. null - ходы не отмечаются.
+     */
+    public void render(GameField field, Color colorForPossibleMoves) {
+        if (mode == RenderMode.ANSI && previousSize == field.getSize()) {
+            appendChangedCells(field, colorForPossibleMoves);
+        } else {
+            if (mode == RenderMode.ANSI) {
+                frame.append(ESCAPE).append("H").append(ESCAPE).append("2J");
+            }
+            appendFullFrame(field, colorForPossibleMoves);
+        }
+
+        flushFrame();
+    }
+
+    /**
+     * Вывод строки доступных ходов. Ничего не выводится, если ходов нет.
+     */
+    public void renderPossibleMoves(GameField field, Color colorForPossibleMoves) {
+        int count = field.getAvailableSquares(colorForPossibleMoves, squares);
+        if (count == 0) {
+            return;
+        }
+
+        BoardGeometry geometry = field.getGeometry();
+        frame.append("Доступные ходы:");
+        for (int i = 0; i < count; i++) {
+            geometry.appendSquare(frame.append(' '), squares[i]);
+            frame.append(i == count - 1 ? ".\n" : ",");
+        }
+
+        flushFrame();
+    }
+
+    /**
+     * Следующий кадр в режиме RenderMode.ANSI выводится целиком (например, после очистки или прокрутки экрана).
+     */
+    public void invalidate() {
+        previousSize = 0;
+    }
+
+    /* ===== private ===== */
+
+    private void appendFullFrame(GameField field, Color colorForPossibleMoves) {
+        int size = field.getSize();
+        // номера строк на полях больше 9x9 занимают две позиции
+        int indentLength = getIndentLength(size);
+
+        for (int i = 0; i < size; i++) {
+            appendSeparator(size, indentLength);
+            if (i + 1 < 10 && indentLength > 1) {
+                frame.append(' ');
+            }
+            frame.append(i + 1).append(" |");
+            for (int j = 0; j < size; j++) {
+                char symbol = getCellSymbol(field, field.getGeometry().toSquare(i, j), colorForPossibleMoves);
+                previousSymbols[i * size + j] = symbol;
+                frame.append("  ").append(symbol).append("  |");
+            }
+            frame.append('\n');
+        }
+        appendSeparator(size, indentLength);
+
+        appendSpaces(indentLength + 2);
+        for (int j = 0; j < size; j++) {
+            frame.append("  ").append((char) ('a' + j)).append("   ");
+        }
+        frame.append('\n');
+
+        previousSize = size;
+    }
+
+    /**
+     * Перерисовка изменившихся клеток и перевод курсора под поле.
+     */
+    private void appendChangedCells(GameField field, Color colorForPossibleMoves) {
+        int size = field.getSize();
+        int indentLength = getIndentLength(size);
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                char symbol = getCellSymbol(field, field.getGeometry().toSquare(i, j), colorForPossibleMoves);
+                if (previousSymbols[i * size + j] != symbol) {
+                    previousSymbols[i * size + j] = symbol;
+                    // строки и столбцы экрана нумеруются с 1: клетка (i, j) - в строке 2 + 2i, символ - в середине ячейки
+                    appendCursorMove(2 + 2 * i, indentLength + 2 + CELL_WIDTH * j + 3);
+                    frame.append(symbol);
                 }
             }
-            System.out.println();
         }
-        System.out.println("  |-----|-----|-----|-----|-----|-----|-----|-----|");
-        System.out.println("     a     b     c     d     e     f     g     h   ");
+
+        // под полем: разделитель после последней строки и строка букв
+        appendCursorMove(2 * size + 3, 1);
+        frame.append(ESCAPE).append("J");
+    }
+
+    private void appendSeparator(int size, int indentLength) {
+        appendSpaces(indentLength);
+        frame.append(" |");
+        for (int j = 0; j < size; j++) {
+            frame.append("-----|");
+        }
+        frame.append('\n');
+    }
+
+    private void appendSpaces(int count) {
+        for (int i = 0; i < count; i++) {
+            frame.append(' ');
+        }
+    }
+
+    private void appendCursorMove(int row, int column) {
+        frame.append(ESCAPE).append(row).append(';').append(column).append('H');
     }
 
-    private static String getCellSymbol(GameField field, Coords2D coords) {
-        var cell = field.getCell(coords);
-        if (cell.isEmpty()) {
-            return EMPTY_CELL_SYMBOL;
-        } else if (cell.getChipColor() == Color.WHITE) {
+    private void flushFrame() {
+        out.append(frame);
+        frame.setLength(0);
+    }
+
+    private static int getIndentLength(int size) {
+        return size >= 10 ? 2 : 1;
+    }
+
+    private static char getCellSymbol(GameField field, int square, Color colorForPossibleMoves) {
+        Color color = field.getChipColor(square);
+        if (color == Color.WHITE) {
             return WHITE_CHIP_SYMBOL;
-        } else if (cell.getChipColor() == Color.BLACK) {
+        } else if (color == Color.BLACK) {
             return BLACK_CHIP_SYMBOL;
-        } else {
-            // assert
-            assert (false);
-            return null;
+        } else if (colorForPossibleMoves != null && field.canPlaceChip(square, colorForPossibleMoves)) {
+            return POSSIBLE_MOVE_SYMBOL;
         }
+
+        return EMPTY_CELL_SYMBOL;
     }
 }
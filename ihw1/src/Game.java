@@ -2,7 +2,8 @@ public class Game {
     private GameField field;
     private Color currentPlayerColor;
     private GameMode gameMode;
-    private boolean isHardMode;
+    private RobotLevel robotLevel;
+    private int boardSize = BoardGeometry.DEFAULT_SIZE;
 
     private Player playerWhite;
     private Player playerBlack;
@@ -18,13 +19,21 @@ public class Game {
 
         if (gameMode == GameMode.PVE) {
             System.out.println("Выберите сложность.");
-            command = ConsoleScanner.scanCommand(new String[]{"easy", "hard"});
+            command = ConsoleScanner.scanCommand(new String[]{"easy", "hard", "expert", "mcts"});
             if (command.equals("easy")) {
-                isHardMode = false;
+                robotLevel = RobotLevel.EASY;
             } else if (command.equals("hard")) {
-                isHardMode = true;
+                robotLevel = RobotLevel.HARD;
+            } else if (command.equals("expert")) {
+                robotLevel = RobotLevel.EXPERT;
+            } else if (command.equals("mcts")) {
+                robotLevel = RobotLevel.MCTS;
             }
         }
+
+        System.out.println("Выберите размер поля.");
+        command = ConsoleScanner.scanCommand(new String[]{"8", "6", "10", "4", "12"});
+        boardSize = Integer.parseInt(command);
     }
 
     public void mainLoop() {
@@ -33,10 +42,18 @@ public class Game {
             playerWhite = new PlayerHuman(Color.WHITE, "Игрок 2");
         } else if (gameMode == GameMode.PVE) {
             playerBlack = new PlayerHuman(Color.BLACK, "Игрок");
-            playerWhite = new PlayerRobot(Color.WHITE, isHardMode);
+            SearchConfig searchConfig = new SearchConfig();
+            // веса оценки и книга дебютов построены для поля 8x8
+            if (boardSize == BoardGeometry.DEFAULT_SIZE) {
+                searchConfig.evaluator = PatternEvaluator.loadOrSimple(PatternEvaluator.DEFAULT_WEIGHTS_PATH);
+                searchConfig.openingBook = OpeningBook.open(OpeningBook.DEFAULT_BOOK_PATH);
+            }
+            searchConfig.ponder = !BoardGeometry.of(boardSize).isWide();
+            searchConfig.metrics = SearchMetrics.register("robot");
+            playerWhite = new PlayerRobot(Color.WHITE, robotLevel, searchConfig);
         }
 
-        field = new GameField();
+        field = new GameField(boardSize);
 
         boolean continueGame = true;
         int bestResult = 0;
@@ -55,6 +72,9 @@ public class Game {
         }
 
         System.out.printf("Лучший результат за сессию: %d б.\n", bestResult);
+        if (playerWhite instanceof PlayerRobot robot) {
+            robot.close();
+        }
     }
 
     /**
@@ -89,12 +109,20 @@ public class Game {
                 switchPlayer();
             } else {
                 boolean lastMoveCancelled = getCurrentPlayer().makeNextMove(field);
+                String moveReport = getCurrentPlayer().getLastMoveReport();
+                if (moveReport != null) {
+                    System.out.printf("%s: %s\n", getCurrentPlayer().getName(), moveReport);
+                }
                 if (!lastMoveCancelled) {
                     switchPlayer();
                 }
             }
         }
 
+        if (playerWhite instanceof PlayerRobot robot) {
+            robot.stopPondering();
+        }
+
         var stats = field.getFieldStats();
         System.out.println("Результаты игры:");
         System.out.printf("%s: %d б. %s: %d б.\n", playerWhite.getName(), stats.whiteChips, playerBlack.getName(), stats.blackChips);
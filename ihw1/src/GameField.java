@@ -1,36 +1,226 @@
 import java.util.ArrayList;
-import java.util.Stack;
-
+import java.util.Arrays;
+
+/**
+ * Игровое поле размера size x size (см. BoardGeometry). Поле до 8x8 хранит фишки двумя битовыми масками (см. BitBoard),
+ * поле больше - многословными масками (см. WideBitBoard); методы с масками long доступны только для полей до 8x8,
+ * методы с Coords2D, Cell и индексами клеток - для всех размеров.
+ * Доступные ходы каждого цвета и последняя маска переворачиваемых фишек запоминаются до изменения расстановки
+ * (см. getVersion), поэтому повторные проверки одной позиции за ход (отрисовка, проверка ввода, ход) не пересчитывают их.
+ * Количество фишек и пустых клеток всего и в четвертях поля обновляются при каждом ходе и отмене,
+ * поэтому читаются без обхода поля; граничные фишки находятся сдвигами масок и тоже запоминаются.
+ */
 public class GameField {
-    private Stack<Cell[][]> stateHistory;
-    private Cell[][] currentState;
+    private static final int INITIAL_HISTORY_CAPACITY = 64;
+
+    private final BoardGeometry geometry;
+    private final long validMask;
+
+    private long whiteChips;
+    private long blackChips;
+
+    /**
+     * Фишки поля больше 8x8, null - для полей до 8x8.
+     */
+    private final WideBitBoard wideBoard;
+    private final long[] wideMoves;
+
+    /**
+     * Хеш Зобриста текущей расстановки фишек, обновляется при каждом ходе и отмене.
+     */
+    private long hash;
+
+    /**
+     * Номер версии расстановки: меняется при каждом ходе, отмене и расстановке фишек.
+     */
+    private long version;
+
+    /*
+     * Доступные ходы каждого цвета (индекс - Color.ordinal) для версии movesVersions:
+     * маска для полей до 8x8, многословная маска для полей больше, и количество ходов.
+     */
+    private final long[] movesVersions = {-1, -1};
+    private final long[] cachedMoves = new long[2];
+    private final long[][] cachedWideMoves;
+    private final int[] cachedMovesCounts = new int[2];
+
+    /*
+     * Последняя вычисленная маска переворачиваемых фишек каждого цвета (только поля до 8x8): версия, клетка, маска.
+     */
+    private final long[] flipsVersions = {-1, -1};
+    private final int[] flipsSquares = new int[2];
+    private final long[] cachedFlips = new long[2];
+
+    /*
+     * Количество граничных фишек каждого цвета (см. getFrontierCount) для версии frontierVersions.
+     */
+    private final long[] frontierVersions = {-1, -1};
+    private final int[] cachedFrontierCounts = new int[2];
+
+    /*
+     * Количество фишек каждого цвета, пустых клеток всего и в каждой четверти поля (см. BoardGeometry.getQuadrant;
+     * по 8 бит на четверть).
+     */
+    private int whiteChipsCount;
+    private int blackChipsCount;
+    private int emptyCount;
+    private int quadrantEmptyCounts;
+
+    /*
+     * Журнал ходов для отмены: для каждого хода хранятся только клетка установки,
+     * маска перевернутых фишек и цвет ходившего. Для поля больше 8x8 маска занимает getWordsCount элементов historyFlips.
+     */
+    private int[] historySquares;
+    private long[] historyFlips;
+    private Color[] historyColors;
+    private int historySize;
 
     GameField() {
-        stateHistory = new Stack<Cell[][]>();
-        currentState = new Cell[8][8];
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                currentState[i][j] = new Cell();
-            }
+        this(BoardGeometry.DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size Размер поля (см. BoardGeometry.isSupportedSize).
+     * @throws IllegalArgumentException Если размер не поддерживается.
+     */
+    GameField(int size) {
+        geometry = BoardGeometry.of(size);
+        validMask = geometry.getValidMask();
+        if (geometry.isWide()) {
+            wideBoard = new WideBitBoard(geometry);
+            wideMoves = new long[geometry.getWordsCount()];
+            cachedWideMoves = new long[2][geometry.getWordsCount()];
+        } else {
+            wideBoard = null;
+            wideMoves = null;
+            cachedWideMoves = null;
+        }
+
+        historySquares = new int[INITIAL_HISTORY_CAPACITY];
+        historyFlips = new long[INITIAL_HISTORY_CAPACITY * getFlipsStride()];
+        historyColors = new Color[INITIAL_HISTORY_CAPACITY];
+        historySize = 0;
+        recomputeFeatures();
+    }
+
+    /**
+     * Создает независимую копию поля вместе с журналом ходов.
+     * @return Глубокая копия поля.
+     */
+    public GameField getDeepCopy() {
+        GameField copy = new GameField(geometry.getSize());
+        copy.whiteChips = whiteChips;
+        copy.blackChips = blackChips;
+        if (wideBoard != null) {
+            copy.wideBoard.setChips(wideBoard);
         }
+        copy.whiteChipsCount = whiteChipsCount;
+        copy.blackChipsCount = blackChipsCount;
+        copy.emptyCount = emptyCount;
+        copy.quadrantEmptyCounts = quadrantEmptyCounts;
+        copy.hash = hash;
+        copy.version = version;
+        copy.historySquares = Arrays.copyOf(historySquares, historySquares.length);
+        copy.historyFlips = Arrays.copyOf(historyFlips, historyFlips.length);
+        copy.historyColors = Arrays.copyOf(historyColors, historyColors.length);
+        copy.historySize = historySize;
+        return copy;
     }
 
     public void setupStartState() {
-        stateHistory.clear();
+        clear();
+
+        int center = geometry.getSize() / 2;
+        setChipForce(new Coords2D(center - 1, center - 1), Color.WHITE);
+        setChipForce(new Coords2D(center, center), Color.WHITE);
+        setChipForce(new Coords2D(center - 1, center), Color.BLACK);
+        setChipForce(new Coords2D(center, center - 1), Color.BLACK);
+        recomputeFeatures();
+    }
 
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                currentState[i][j].setEmpty();
+    /**
+     * Расстановка фишек по строке из size * size символов: 'X' - черная фишка, 'O' - белая, '-' - пустая клетка.
+     * Клетки перечисляются по строкам: a1, b1, ..., h1, a2, ..., h8 для поля 8x8. Журнал ходов очищается.
+     * @param board Строка расстановки.
+     * @return false - если строка некорректна; поле в этом случае не изменяется.
+     */
+    public boolean setupFromString(String board) {
+        int size = geometry.getSize();
+        if (board.length() != size * size || !board.matches("[XO-]*")) {
+            return false;
+        }
+
+        clear();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                char symbol = board.charAt(x * size + y);
+                if (symbol != '-') {
+                    setChipForce(new Coords2D(x, y), symbol == 'O' ? Color.WHITE : Color.BLACK);
+                }
             }
         }
-        setChipForce(new Coords2D(3, 3), Color.WHITE);
-        setChipForce(new Coords2D(4, 4), Color.WHITE);
-        setChipForce(new Coords2D(3, 4), Color.BLACK);
-        setChipForce(new Coords2D(4, 3), Color.BLACK);
+        recomputeFeatures();
+
+        return true;
     }
 
+    /**
+     * Расстановка фишек по маскам (см. BitBoard), только для полей до 8x8. История ходов очищается.
+     */
+    public void setupFromMasks(long white, long black) {
+        checkNarrow();
+        historySize = 0;
+        version++;
+        whiteChips = white & validMask;
+        blackChips = black & validMask;
+        hash = Zobrist.computeHash(whiteChips, blackChips);
+        recomputeFeatures();
+    }
+
+    /**
+     * Строка расстановки фишек в формате setupFromString.
+     */
+    public String toBoardString() {
+        int size = geometry.getSize();
+        StringBuilder result = new StringBuilder(size * size);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                Color color = getChipColor(geometry.toSquare(x, y));
+                result.append(color == Color.WHITE ? 'O' : color == Color.BLACK ? 'X' : '-');
+            }
+        }
+
+        return result.toString();
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getSize() {
+        return geometry.getSize();
+    }
+
+    /**
+     * Номер версии расстановки фишек. Если он не изменился, не изменились и фишки, и доступные ходы.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Получение клетки поля.
+     * @param coords Позиция клетки.
+     * @return Копия содержимого клетки. Изменение копии не влияет на поле.
+     */
     public Cell getCell(Coords2D coords) {
-        return currentState[coords.x][coords.y];
+        Cell result = new Cell();
+        Color color = getChipColor(toSquare(coords));
+        if (color != null) {
+            result.setChip(color);
+        }
+
+        return result;
     }
 
     /**
@@ -42,145 +232,317 @@ public class GameField {
     public ArrayList<Coords2D> getClosingDirections(Coords2D coords, Color color) {
         ArrayList<Coords2D> result = new ArrayList<Coords2D>();
 
-        for (Coords2D dir : DIRECTIONS) {
-            Coords2D processingCoords = Coords2D.sum(coords, dir);
-            if (isInField(processingCoords)) {
-                Cell processingCell = getCell(processingCoords);
-                if (!processingCell.isEmpty() && processingCell.getChipColor().isOppositeColor(color)) {
-                    int factor = 2;
-                    while (true) {
-                        processingCoords = Coords2D.sum(coords, Coords2D.scale(dir, factor));
-                        if (!isInField(processingCoords)) {
-                            break;
-                        }
-
-                        processingCell = getCell(processingCoords);
-                        if (processingCell.isEmpty()) {
-                            break;
-                        } else if (processingCell.getChipColor() == color) {
-                            result.add(dir);
-                            break;
-                        }
-
-                        factor++;
-                    }
-                }
+        int square = toSquare(coords);
+        long flips = wideBoard != null ? 0 : getFlipsMask(square, color);
+        for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+            boolean closing;
+            if (wideBoard != null) {
+                closing = wideBoard.getFlipsLengthInDirection(square, color, dir) != 0;
+            } else {
+                // соседняя клетка переворачивается, только если в этом направлении есть замыкание
+                closing = (BitBoard.shift(1L << square, dir) & flips) != 0;
+            }
+            if (closing) {
+                result.add(DIRECTIONS[dir]);
             }
         }
 
         return result;
     }
 
+    /**
+     * @return false - в том числе если клетка вне поля.
+     */
     public boolean canPlaceChip(Coords2D coords, Color color) {
-        if (!getCell(coords).isEmpty()) {
+        return isInField(coords) && canPlaceChip(toSquare(coords), color);
+    }
+
+    public boolean canPlaceChip(int square, Color color) {
+        if (square < 0 || square >= geometry.getSquareIndexBound()) {
             return false;
         }
 
-        return !getClosingDirections(coords, color).isEmpty();
+        updateMovesCache(color);
+        if (wideBoard != null) {
+            return (cachedWideMoves[color.ordinal()][square >>> 6] & (1L << square)) != 0;
+        }
+
+        // клеток вне поля меньше 8x8 в маске ходов нет
+        return (cachedMoves[color.ordinal()] & (1L << square)) != 0;
     }
 
     public void placeChip(Coords2D coords, Color color) {
-        if (!canPlaceChip(coords, color)) {
+        placeChip(toSquare(coords), color);
+    }
+
+    /**
+     * @throws IllegalArgumentException Если индекс клетки вне диапазона индексов поля (см. BoardGeometry.getSquareIndexBound).
+     */
+    public void placeChip(int square, Color color) {
+        if (square < 0 || square >= geometry.getSquareIndexBound()) {
+            throw new IllegalArgumentException("Индекс клетки вне поля: " + square);
+        }
+        if (wideBoard != null) {
+            placeChipWide(square, color);
+            return;
+        }
+        if (((whiteChips | blackChips | ~validMask) & (1L << square)) != 0) {
             return;
         }
 
-        stateHistory.push(getCopyOfCurrentState());
+        // маска из кеша, если ее уже запрашивали для этой клетки (например, при проверке хода); иначе кеш не заполняется,
+        // потому что после хода он все равно устареет
+        int index = color.ordinal();
+        long flips;
+        if (flipsVersions[index] == version && flipsSquares[index] == square) {
+            flips = cachedFlips[index];
+        } else {
+            flips = BitBoard.getFlips(getChipsMask(color), getChipsMask(color.getOppositeColor()), square);
+        }
+        if (flips == 0) {
+            return;
+        }
 
-        setChipForce(coords, color);
+        pushHistory(square, flips, color);
+        version++;
 
-        var directionsToSwitch = getClosingDirections(coords, color);
-        for (Coords2D dir : directionsToSwitch) {
-            Coords2D processingCoords;
-            Cell processingCell;
-            int factor = 1;
-            while (true) {
-                processingCoords = Coords2D.sum(coords, Coords2D.scale(dir, factor));
-                if (!isInField(processingCoords)) {
-                    break;
-                }
+        long placed = 1L << square;
+        if (color == Color.WHITE) {
+            whiteChips |= placed | flips;
+            blackChips &= ~flips;
+        } else {
+            blackChips |= placed | flips;
+            whiteChips &= ~flips;
+        }
+        hash ^= Zobrist.getChipKey(square, color) ^ Zobrist.getFlipsKey(flips);
 
-                processingCell = getCell(processingCoords);
-                if (processingCell.isEmpty()) {
-                    break;
-                } else if (processingCell.getChipColor().isEqualColor(color)) {
-                    break;
-                } else {
-                    processingCell.switchChip();
-                }
+        updateCounts(square, color, Long.bitCount(flips), 1);
+    }
 
-                factor++;
-            }
+    /**
+     * Нахождение фишек, которые будут перевернуты при установке фишки. Только для полей до 8x8.
+     * @param square Индекс клетки (см. BitBoard).
+     * @param color Цвет фишки.
+     * @return Маска переворачиваемых фишек. 0 - если ход невозможен.
+     */
+    public long getFlipsMask(int square, Color color) {
+        int index = color.ordinal();
+        if (flipsVersions[index] != version || flipsSquares[index] != square) {
+            cachedFlips[index] = BitBoard.getFlips(getChipsMask(color), getChipsMask(color.getOppositeColor()), square);
+            flipsSquares[index] = square;
+            flipsVersions[index] = version;
+        }
+
+        return cachedFlips[index];
+    }
+
+    /**
+     * Нахождение фишек, которые будут перевернуты при установке фишки, для поля любого размера.
+     * @param squares Массив, в который записываются индексы клеток переворачиваемых фишек.
+     * @return Количество переворачиваемых фишек. 0 - если ход невозможен.
+     */
+    public int getFlippedSquares(int square, Color color, int[] squares) {
+        if (wideBoard != null) {
+            wideBoard.getFlips(square, color, wideMoves, 0);
+            return getSquares(wideMoves, squares);
+        }
+
+        return getSquares(getFlipsMask(square, color), squares);
+    }
+
+    /**
+     * Нахождение всех клеток, на которые игрок может поставить фишку. Только для полей до 8x8.
+     * @param color Цвет игрока.
+     * @return Маска клеток (см. BitBoard).
+     */
+    public long getAvailableMovesMask(Color color) {
+        checkNarrow();
+        updateMovesCache(color);
+        return cachedMoves[color.ordinal()];
+    }
+
+    /**
+     * Нахождение всех клеток, на которые игрок может поставить фишку, для поля любого размера.
+     * @param squares Массив не короче geometry.getSquareIndexBound(), в который записываются индексы клеток
+     * в порядке возрастания.
+     * @return Количество ходов.
+     */
+    public int getAvailableSquares(Color color, int[] squares) {
+        updateMovesCache(color);
+        if (wideBoard != null) {
+            return getSquares(cachedWideMoves[color.ordinal()], squares);
+        }
+
+        return getSquares(cachedMoves[color.ordinal()], squares);
+    }
+
+    /**
+     * Хеш Зобриста расстановки фишек без учета стороны, которая ходит (см. Zobrist.getSideKey).
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Маска фишек цвета (см. BitBoard). Только для полей до 8x8.
+     */
+    public long getChipsMask(Color color) {
+        checkNarrow();
+        if (color == Color.WHITE) {
+            return whiteChips;
+        } else {
+            return blackChips;
         }
     }
 
     public boolean canUndoMove(int amount) {
-        return stateHistory.size() >= amount;
+        return historySize >= amount;
     }
 
     public void undoMove(int amount) {
         if (canUndoMove(amount)) {
-            for (int i = 0; i < amount - 1; i++) {
-                stateHistory.pop();
+            for (int i = 0; i < amount; i++) {
+                undoLastMove();
             }
-            currentState = stateHistory.pop();
         }
     }
 
+    /**
+     * @return Индекс клетки последнего хода или -1, если ходов не было.
+     */
+    public int getLastMoveSquare() {
+        return historySize > 0 ? historySquares[historySize - 1] : -1;
+    }
+
     public boolean isFilled() {
-        for (Cell[] line : currentState) {
-            for (Cell cell : line) {
-                if (cell.isEmpty()) {
-                    return false;
-                }
-            }
+        return emptyCount == 0;
+    }
+
+    /**
+     * @return Цвет фишки в клетке, null - если клетка пуста.
+     */
+    public Color getChipColor(int square) {
+        if (wideBoard != null) {
+            return wideBoard.getColor(square);
         }
 
-        return true;
+        long bit = 1L << square;
+        if ((whiteChips & bit) != 0) {
+            return Color.WHITE;
+        } else if ((blackChips & bit) != 0) {
+            return Color.BLACK;
+        }
+
+        return null;
     }
 
-    public FieldStats getFieldStats() {
-        FieldStats result = new FieldStats();
+    public int getChipsCount(Color color) {
+        return color == Color.WHITE ? whiteChipsCount : blackChipsCount;
+    }
 
-        for (Cell[] line : currentState) {
-            for (Cell cell : line) {
-                if (!cell.isEmpty()) {
-                    if (cell.getChipColor() == Color.WHITE) {
-                        result.whiteChips++;
-                    } else {
-                        result.blackChips++;
-                    }
-                }
+    /**
+     * Количество доступных ходов игрока для поля любого размера.
+     */
+    public int getMovesCount(Color color) {
+        updateMovesCache(color);
+        return cachedMovesCounts[color.ordinal()];
+    }
+
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Количество пустых клеток в четверти поля.
+     * @param quadrant Номер четверти (см. BoardGeometry.getQuadrant).
+     */
+    public int getQuadrantEmptyCount(int quadrant) {
+        return (quadrantEmptyCounts >>> (quadrant * 8)) & 0xFF;
+    }
+
+    /**
+     * Маска четвертей поля с нечетным количеством пустых клеток: бит i - четверть i (см. BoardGeometry.getQuadrant).
+     */
+    public int getOddQuadrantsMask() {
+        int odd = quadrantEmptyCounts & 0x01010101;
+        return (odd | (odd >>> 7) | (odd >>> 14) | (odd >>> 21)) & 0xF;
+    }
+
+    /**
+     * Количество граничных фишек цвета - фишек, рядом с которыми (по восьми направлениям) есть пустая клетка.
+     * Вычисляется по маскам сдвигами, без обхода клеток, и запоминается до изменения расстановки.
+     */
+    public int getFrontierCount(Color color) {
+        int index = color.ordinal();
+        if (frontierVersions[index] != version) {
+            if (wideBoard != null) {
+                cachedFrontierCounts[index] = wideBoard.getFrontierCount(color);
+            } else {
+                long occupied = whiteChips | blackChips;
+                cachedFrontierCounts[index] = Long.bitCount(getChipsMask(color) & BitBoard.dilate(~occupied & validMask));
             }
+            frontierVersions[index] = version;
         }
 
+        return cachedFrontierCounts[index];
+    }
+
+    /**
+     * Маска пустых клеток поля (см. BitBoard). Только для полей до 8x8.
+     */
+    public long getEmptyMask() {
+        checkNarrow();
+        return ~(whiteChips | blackChips) & validMask;
+    }
+
+    public FieldStats getFieldStats() {
+        FieldStats result = new FieldStats();
+        result.whiteChips = whiteChipsCount;
+        result.blackChips = blackChipsCount;
         return result;
     }
 
     public ArrayList<Coords2D> getAvailableCoordsToPlaceChip(Color color) {
         ArrayList<Coords2D> result = new ArrayList<Coords2D>();
 
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Coords2D coords = new Coords2D(i, j);
-                if (canPlaceChip(coords, color)) {
-                    result.add(coords);
-                }
-            }
+        int[] squares = new int[geometry.getSquareIndexBound()];
+        int count = getAvailableSquares(color, squares);
+        for (int i = 0; i < count; i++) {
+            result.add(toCoords(squares[i]));
         }
 
         return result;
     }
 
     public boolean canMakeMove(Color color) {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (canPlaceChip(new Coords2D(i, j), color)) {
-                    return true;
-                }
-            }
+        return getMovesCount(color) != 0;
+    }
+
+    public boolean isInField(Coords2D coords) {
+        return geometry.isInside(coords.x, coords.y);
+    }
+
+    public boolean isCorner(Coords2D coords) {
+        return geometry.isCorner(toSquare(coords));
+    }
+
+    public boolean isBorder(Coords2D coords) {
+        return geometry.isBorder(toSquare(coords));
+    }
+
+    /**
+     * @throws IllegalArgumentException Если клетка вне поля: индекс такой клетки совпал бы с индексом другой клетки.
+     */
+    public int toSquare(Coords2D coords) {
+        if (!isInField(coords)) {
+            throw new IllegalArgumentException("Клетка вне поля: " + coords.x + ", " + coords.y);
         }
 
-        return false;
+        return geometry.toSquare(coords.x, coords.y);
+    }
+
+    public Coords2D toCoords(int square) {
+        return geometry.toCoords(square);
     }
 
     /* ===== static ===== */
@@ -199,56 +561,269 @@ public class GameField {
         DIRECTIONS[7] = new Coords2D(-1, -1);
     }
 
+    /**
+     * Запись координат: буква столбца и номер строки ("f5", на полях больше 9x9 - "c10").
+     */
     public static String coordsToString(Coords2D coords) {
-        StringBuilder result = new StringBuilder();
-        result.append((char) ('a' + coords.y));
-        result.append((char) ('1' + coords.x));
-        return result.toString();
+        return appendCoords(new StringBuilder(), coords.x, coords.y).toString();
     }
 
+    /**
+     * Добавление записи координат (см. coordsToString) без создания строки.
+     * @return builder.
+     */
+    public static StringBuilder appendCoords(StringBuilder builder, int x, int y) {
+        return builder.append((char) ('a' + y)).append(x + 1);
+    }
+
+    /**
+     * Разбор записи coordsToString. Попадание в поле конкретного размера проверяет isInField.
+     * @return null - если запись некорректна.
+     */
     public static Coords2D stringToCoords(String str) {
-        if (str.length() != 2) {
+        if (!str.matches("[a-z][1-9][0-9]?")) {
             return null;
         }
 
-        Coords2D result = new Coords2D(str.charAt(1) - '1', str.charAt(0) - 'a');
-        if (result.x < 0 || result.x >= 8 || result.y < 0 || result.y >= 8) {
+        Coords2D result = new Coords2D(Integer.parseInt(str.substring(1)) - 1, str.charAt(0) - 'a');
+        if (result.x >= BoardGeometry.MAX_SIZE || result.y >= BoardGeometry.MAX_SIZE) {
             return null;
         }
 
         return result;
     }
 
-    public static boolean isCorner(Coords2D coords) {
-        return (coords.x == 0 || coords.x == 7) && (coords.y == 0 || coords.y == 7);
+    /* ===== private ===== */
+
+    private void checkNarrow() {
+        if (wideBoard != null) {
+            throw new UnsupportedOperationException("Маски long доступны только для полей до 8x8");
+        }
     }
 
-    public static boolean isBorder(Coords2D coords) {
-        return coords.x == 0 || coords.x == 7 || coords.y == 0 || coords.y == 7;
+    /**
+     * Количество элементов historyFlips на один ход.
+     */
+    private int getFlipsStride() {
+        return wideBoard != null ? geometry.getWordsCount() : 1;
     }
 
-    public static boolean isInField(Coords2D coords) {
-        return coords.x >= 0 && coords.x < 8 && coords.y >= 0 && coords.y < 8;
+    /**
+     * Пересчет доступных ходов цвета, если расстановка изменилась после последнего расчета.
+     */
+    private void updateMovesCache(Color color) {
+        int index = color.ordinal();
+        if (movesVersions[index] == version) {
+            return;
+        }
+
+        if (wideBoard != null) {
+            long[] moves = cachedWideMoves[index];
+            wideBoard.getMoves(color, moves);
+            int count = 0;
+            for (int i = 0; i < moves.length; i++) {
+                count += Long.bitCount(moves[i]);
+            }
+            cachedMovesCounts[index] = count;
+        } else {
+            long moves = BitBoard.getMoves(getChipsMask(color), getChipsMask(color.getOppositeColor()), validMask);
+            cachedMoves[index] = moves;
+            cachedMovesCounts[index] = Long.bitCount(moves);
+        }
+        movesVersions[index] = version;
     }
 
-    /* ===== private ===== */
+    private void clear() {
+        historySize = 0;
+        version++;
+        whiteChips = 0;
+        blackChips = 0;
+        if (wideBoard != null) {
+            wideBoard.clear();
+        }
+        hash = 0;
+    }
+
+    private void ensureHistoryCapacity() {
+        if (historySize == historySquares.length) {
+            int newCapacity = historySquares.length * 2;
+            historySquares = Arrays.copyOf(historySquares, newCapacity);
+            historyFlips = Arrays.copyOf(historyFlips, newCapacity * getFlipsStride());
+            historyColors = Arrays.copyOf(historyColors, newCapacity);
+        }
+    }
+
+    private void pushHistory(int square, long flips, Color color) {
+        ensureHistoryCapacity();
+
+        historySquares[historySize] = square;
+        historyFlips[historySize] = flips;
+        historyColors[historySize] = color;
+        historySize++;
+    }
 
     /**
-     * Создает глубокую копию двумерного массива клеток.
-     * @return Глубокая копия двумерного массива клеток.
+     * Отмена последнего хода по журналу: снимается поставленная фишка и возвращаются перевернутые.
      */
-    private Cell[][] getCopyOfCurrentState() {
-        Cell[][] copy = new Cell[8][8];
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                copy[i][j] = currentState[i][j].getDeepCopy();
-            }
+    private void undoLastMove() {
+        historySize--;
+        version++;
+        int square = historySquares[historySize];
+        if (wideBoard != null) {
+            int offset = historySize * geometry.getWordsCount();
+            Color color = historyColors[historySize];
+            wideBoard.revert(square, color, historyFlips, offset);
+            hash ^= Zobrist.getChipKey(square, color) ^ Zobrist.getFlipsKey(historyFlips, offset, geometry.getWordsCount());
+            updateCounts(square, color, getWideFlipsCount(offset), -1);
+            return;
         }
 
-        return copy;
+        long placed = 1L << square;
+        long flips = historyFlips[historySize];
+        Color color = historyColors[historySize];
+
+        if (color == Color.WHITE) {
+            whiteChips &= ~(placed | flips);
+            blackChips |= flips;
+        } else {
+            blackChips &= ~(placed | flips);
+            whiteChips |= flips;
+        }
+        hash ^= Zobrist.getChipKey(square, color) ^ Zobrist.getFlipsKey(flips);
+        updateCounts(square, color, Long.bitCount(flips), -1);
     }
 
+    /**
+     * Ход на поле больше 8x8: маска переворачиваемых фишек вычисляется сразу в журнал ходов.
+     */
+    private void placeChipWide(int square, Color color) {
+        if (!wideBoard.isEmpty(square)) {
+            return;
+        }
+
+        ensureHistoryCapacity();
+        int offset = historySize * geometry.getWordsCount();
+        int flipsCount = wideBoard.getFlips(square, color, historyFlips, offset);
+        if (flipsCount == 0) {
+            return;
+        }
+
+        historySquares[historySize] = square;
+        historyColors[historySize] = color;
+        historySize++;
+        version++;
+
+        wideBoard.apply(square, color, historyFlips, offset);
+        hash ^= Zobrist.getChipKey(square, color) ^ Zobrist.getFlipsKey(historyFlips, offset, geometry.getWordsCount());
+
+        updateCounts(square, color, flipsCount, 1);
+    }
+
+    /**
+     * Установка фишки без переворотов. Признаки позиции не обновляются: после расстановки вызывается recomputeFeatures.
+     */
     private void setChipForce(Coords2D coords, Color color) {
-        getCell(coords).setChip(color);
+        int square = toSquare(coords);
+        version++;
+        Color previousColor = getChipColor(square);
+        if (previousColor != null) {
+            hash ^= Zobrist.getChipKey(square, previousColor);
+        }
+        hash ^= Zobrist.getChipKey(square, color);
+
+        if (wideBoard != null) {
+            wideBoard.setChip(square, color);
+            return;
+        }
+
+        long bit = 1L << square;
+        if (color == Color.WHITE) {
+            whiteChips |= bit;
+            blackChips &= ~bit;
+        } else {
+            blackChips |= bit;
+            whiteChips &= ~bit;
+        }
+    }
+
+    /**
+     * Изменение количества фишек и пустых клеток при ходе (sign = 1) или его отмене (sign = -1).
+     * @param color Цвет ходившего.
+     */
+    private void updateCounts(int square, Color color, int flipsCount, int sign) {
+        if (color == Color.WHITE) {
+            whiteChipsCount += sign * (flipsCount + 1);
+            blackChipsCount -= sign * flipsCount;
+        } else {
+            blackChipsCount += sign * (flipsCount + 1);
+            whiteChipsCount -= sign * flipsCount;
+        }
+        emptyCount -= sign;
+        quadrantEmptyCounts -= sign << (geometry.getQuadrant(square) * 8);
+    }
+
+    /**
+     * Количество перевернутых фишек по маске из журнала ходов с позиции offset (поле больше 8x8).
+     */
+    private int getWideFlipsCount(int offset) {
+        int result = 0;
+        for (int i = 0; i < geometry.getWordsCount(); i++) {
+            result += Long.bitCount(historyFlips[offset + i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Подсчет признаков позиции обходом поля - после расстановки фишек без ходов.
+     */
+    private void recomputeFeatures() {
+        whiteChipsCount = 0;
+        blackChipsCount = 0;
+        emptyCount = 0;
+        quadrantEmptyCounts = 0;
+
+        for (int square = 0; square < geometry.getSquareIndexBound(); square++) {
+            if (!geometry.isInside(geometry.getX(square), geometry.getY(square))) {
+                continue;
+            }
+
+            Color color = getChipColor(square);
+            if (color == null) {
+                emptyCount++;
+                quadrantEmptyCounts += 1 << (geometry.getQuadrant(square) * 8);
+            } else if (color == Color.WHITE) {
+                whiteChipsCount++;
+            } else {
+                blackChipsCount++;
+            }
+        }
+    }
+
+    /**
+     * Индексы клеток маски в порядке возрастания.
+     * @return Количество клеток.
+     */
+    private static int getSquares(long mask, int[] squares) {
+        int count = 0;
+        while (mask != 0) {
+            squares[count++] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+
+        return count;
+    }
+
+    private int getSquares(long[] words, int[] squares) {
+        int count = 0;
+        for (int i = 0; i < geometry.getWordsCount(); i++) {
+            long word = words[i];
+            while (word != 0) {
+                squares[count++] = i * Long.SIZE + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+
+        return count;
     }
-}
\ No newline at end of file
+}
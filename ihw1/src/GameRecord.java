@@ -0,0 +1,187 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись партии, начатой из начальной позиции (см. GameField.setupStartState).
+ * Ход хранится одним байтом: индекс клетки (см. BitBoard) или PASS. Для каждого хода можно
+ * сохранить оценку движка и время на ход. Объект переиспользуется: GameRecordReader
+ * заполняет один и тот же экземпляр для каждой прочитанной партии.
+ *
+ * Двоичный формат (числа big-endian):
+ * длина остатка записи (u16), флаги (u8: 1 - есть оценки, 2 - есть время), фишек черных (u8), фишек белых (u8),
+ * имя черных и имя белых (длина u8, затем UTF-8), количество ходов (u8), ходы (u8 каждый),
+ * затем при наличии оценки (s16 на ход) и время в мс (u16 на ход).
+ */
+public class GameRecord {
+    public static final int PASS = 0xFF;
+
+    /**
+     * Наибольшее количество ходов в партии: 60 ходов и пропуски между ними.
+     */
+    public static final int MAX_MOVES = 128;
+
+    /**
+     * Наибольший размер записи в байтах.
+     */
+    public static final int MAX_RECORD_SIZE = 2 + 3 + 2 * 256 + 1 + MAX_MOVES * 5;
+
+    private static final int FLAG_EVALS = 1;
+    private static final int FLAG_TIMES = 2;
+
+    public String blackName = "";
+    public String whiteName = "";
+    public int blackChips = 0;
+    public int whiteChips = 0;
+
+    public boolean hasEvals = false;
+    public boolean hasTimes = false;
+
+    public int movesCount = 0;
+    public final int[] moves = new int[MAX_MOVES];
+    public final int[] evals = new int[MAX_MOVES];
+    public final int[] timesMillis = new int[MAX_MOVES];
+
+    public void clear() {
+        blackName = "";
+        whiteName = "";
+        blackChips = 0;
+        whiteChips = 0;
+        hasEvals = false;
+        hasTimes = false;
+        movesCount = 0;
+    }
+
+    /**
+     * Добавление хода.
+     * @param square Индекс клетки или PASS.
+     * @param eval Оценка движка (сохраняется, если hasEvals).
+     * @param timeMillis Время на ход (сохраняется, если hasTimes).
+     */
+    public void addMove(int square, int eval, int timeMillis) {
+        moves[movesCount] = square;
+        evals[movesCount] = eval;
+        timesMillis[movesCount] = timeMillis;
+        movesCount++;
+    }
+
+    public void addMove(int square) {
+        addMove(square, 0, 0);
+    }
+
+    /**
+     * Итог партии по полю после последнего хода.
+     */
+    public void setResult(GameField field) {
+        blackChips = Long.bitCount(field.getChipsMask(Color.BLACK));
+        whiteChips = Long.bitCount(field.getChipsMask(Color.WHITE));
+    }
+
+    /**
+     * Воспроизведение первых plies ходов партии на поле.
+     * @return Цвет игрока, который ходит в полученной позиции, или null, если в записи недопустимый ход.
+     */
+    public Color replay(GameField field, int plies) {
+        field.setupStartState();
+        Color color = Color.BLACK;
+
+        for (int i = 0; i < Integer.min(plies, movesCount); i++) {
+            if (moves[i] != PASS) {
+                if (!field.canPlaceChip(moves[i], color)) {
+                    return null;
+                }
+                field.placeChip(moves[i], color);
+            } else if (field.canMakeMove(color)) {
+                return null;
+            }
+            color = color.getOppositeColor();
+        }
+
+        return color;
+    }
+
+    public Color replay(GameField field) {
+        return replay(field, movesCount);
+    }
+
+    /**
+     * Запись в буфер. В буфере должно быть не меньше MAX_RECORD_SIZE свободных байт.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put((byte) ((hasEvals ? FLAG_EVALS : 0) | (hasTimes ? FLAG_TIMES : 0)));
+        buffer.put((byte) blackChips);
+        buffer.put((byte) whiteChips);
+        putName(buffer, blackName);
+        putName(buffer, whiteName);
+
+        buffer.put((byte) movesCount);
+        for (int i = 0; i < movesCount; i++) {
+            buffer.put((byte) moves[i]);
+        }
+        if (hasEvals) {
+            for (int i = 0; i < movesCount; i++) {
+                buffer.putShort((short) Integer.max(Short.MIN_VALUE, Integer.min(Short.MAX_VALUE, evals[i])));
+            }
+        }
+        if (hasTimes) {
+            for (int i = 0; i < movesCount; i++) {
+                buffer.putShort((short) Integer.min(0xFFFF, timesMillis[i]));
+            }
+        }
+
+        buffer.putShort(start, (short) (buffer.position() - start - 2));
+    }
+
+    /**
+     * Чтение записи из буфера. В буфере должна быть вся запись (см. getRecordSize).
+     */
+    public void readFrom(ByteBuffer buffer) {
+        buffer.getShort();
+        int flags = buffer.get() & 0xFF;
+        hasEvals = (flags & FLAG_EVALS) != 0;
+        hasTimes = (flags & FLAG_TIMES) != 0;
+        blackChips = buffer.get() & 0xFF;
+        whiteChips = buffer.get() & 0xFF;
+        blackName = getName(buffer);
+        whiteName = getName(buffer);
+
+        movesCount = buffer.get() & 0xFF;
+        for (int i = 0; i < movesCount; i++) {
+            moves[i] = buffer.get() & 0xFF;
+        }
+        for (int i = 0; i < movesCount; i++) {
+            evals[i] = hasEvals ? buffer.getShort() : 0;
+        }
+        for (int i = 0; i < movesCount; i++) {
+            timesMillis[i] = hasTimes ? buffer.getShort() & 0xFFFF : 0;
+        }
+    }
+
+    /**
+     * Размер записи, которая начинается с текущей позиции буфера, или -1, если в буфере нет даже длины.
+     */
+    public static int getRecordSize(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) {
+            return -1;
+        }
+
+        return 2 + (buffer.getShort(buffer.position()) & 0xFFFF);
+    }
+
+    /* ===== private ===== */
+
+    private static void putName(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Integer.min(bytes.length, 255);
+        buffer.put((byte) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    private static String getName(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Последовательное чтение партий из файлов журнала (см. GameRecordWriter).
+ * Файлы читаются большими блоками, партии по одной заполняют переданный GameRecord.
+ * Пример: while (reader.next(record)) { record.replay(field); ... }
+ */
+public class GameRecordReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final List<Path> files;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private FileChannel channel;
+    private int fileIndex = 0;
+    private boolean endOfFile = true;
+
+    public GameRecordReader(List<Path> files) {
+        this.files = files;
+        buffer.limit(0);
+    }
+
+    public GameRecordReader(Path directory, String prefix) throws IOException {
+        this(GameRecordWriter.getLogFiles(directory, prefix));
+    }
+
+    /**
+     * Чтение следующей партии.
+     * @return false - если партии закончились.
+     * @throws IOException При ошибке чтения или неверном формате файла.
+     */
+    public boolean next(GameRecord record) throws IOException {
+        while (true) {
+            int size = GameRecord.getRecordSize(buffer);
+            if (size > 0 && size <= buffer.remaining()) {
+                record.readFrom(buffer);
+                return true;
+            }
+
+            if (!endOfFile) {
+                fillBuffer();
+            } else if (buffer.hasRemaining()) {
+                throw new IOException("Неполная запись партии в конце файла " + files.get(fileIndex - 1));
+            } else if (!openNextFile()) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /* ===== private ===== */
+
+    private boolean openNextFile() throws IOException {
+        close();
+        if (fileIndex >= files.size()) {
+            return false;
+        }
+
+        channel = FileChannel.open(files.get(fileIndex++), StandardOpenOption.READ);
+        endOfFile = false;
+        fillBuffer();
+        if (buffer.remaining() < GameRecordWriter.HEADER_SIZE
+                || buffer.getInt() != GameRecordWriter.FILE_MAGIC || buffer.getInt() != GameRecordWriter.FILE_VERSION) {
+            throw new IOException("Неверный заголовок файла " + files.get(fileIndex - 1));
+        }
+
+        return true;
+    }
+
+    /**
+     * Дочитывание файла в буфер после непрочитанного остатка.
+     */
+    private void fillBuffer() throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+}
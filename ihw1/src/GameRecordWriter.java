@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Запись партий (см. GameRecord) в файлы журнала: записи копятся в буфере и сбрасываются в файл
+ * большими блоками, при превышении размера файла начинается следующий файл (prefix-00000.rvg, prefix-00001.rvg, ...).
+ * Каждый файл начинается с заголовка: сигнатура и версия. Методы синхронизированы, один журнал
+ * можно использовать из нескольких потоков.
+ */
+public class GameRecordWriter implements AutoCloseable {
+    public static final String FILE_EXTENSION = ".rvg";
+    public static final int FILE_MAGIC = 0x52564752;
+    public static final int FILE_VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private FileChannel channel;
+    private int fileIndex;
+    private long fileBytes;
+    private long gamesCount;
+
+    /**
+     * @param directory Каталог журнала, создается при необходимости. Существующие файлы с тем же префиксом
+     *                  не перезаписываются, нумерация продолжается.
+     * @param maxFileBytes Размер файла, после которого начинается следующий.
+     */
+    public GameRecordWriter(Path directory, String prefix, long maxFileBytes) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+
+        Files.createDirectories(directory);
+        fileIndex = getLogFiles(directory, prefix).size();
+        openNextFile();
+    }
+
+    public synchronized void write(GameRecord record) throws IOException {
+        if (buffer.remaining() < GameRecord.MAX_RECORD_SIZE) {
+            flushBuffer();
+        }
+
+        int start = buffer.position();
+        record.writeTo(buffer);
+        fileBytes += buffer.position() - start;
+        gamesCount++;
+
+        if (fileBytes >= maxFileBytes) {
+            flushBuffer();
+            channel.close();
+            fileIndex++;
+            openNextFile();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flushBuffer();
+        channel.close();
+    }
+
+    public synchronized long getGamesCount() {
+        return gamesCount;
+    }
+
+    /**
+     * Файлы журнала с заданным префиксом в порядке записи.
+     */
+    public static List<Path> getLogFiles(Path directory, String prefix) throws IOException {
+        List<Path> result = new ArrayList<Path>();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix + "-") && name.endsWith(FILE_EXTENSION);
+            }).sorted().forEach(result::add);
+        }
+
+        return result;
+    }
+
+    /* ===== private ===== */
+
+    private void openNextFile() throws IOException {
+        Path path = directory.resolve(String.format("%s-%05d%s", prefix, fileIndex, FILE_EXTENSION));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        buffer.putInt(FILE_MAGIC);
+        buffer.putInt(FILE_VERSION);
+        fileBytes = HEADER_SIZE;
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Игровой сервер: много партий (GameSession) в одном процессе, по одной на соединение, строковый протокол по TCP.
+ * Весь ввод-вывод выполняет один поток на Selector. Команды с ходом робота выполняются в пуле расчетов
+ * с ограниченной очередью, поэтому долгий поиск не задерживает остальные соединения; если очередь заполнена,
+ * клиент получает 'error busy'. У каждого потока пула свои роботы всех уровней: партии не хранят поисковые таблицы.
+ * Следующая команда соединения выполняется только после ответа на предыдущую.
+ * Нагрузку создает LoadGenerator.
+ * Запуск: java GameServer [порт] [потоков расчета] [размер очереди] [мс на ход для expert].
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 7070;
+
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int BACKLOG = 4096;
+    private static final long REPORT_INTERVAL_MILLIS = 10_000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ThreadPoolExecutor computePool;
+    private final ThreadLocal<PlayerRobot[]> robots;
+
+    /**
+     * Соединения, для которых пул расчетов выполнил команду; ответы отправляет поток ввода-вывода.
+     */
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<Connection>();
+
+    private final LongAdder commandsCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private int connectionsCount;
+    private volatile boolean running = true;
+
+    /**
+     * @param port Порт; 0 - любой свободный (см. getPort).
+     * @param computeThreads Количество потоков пула расчетов.
+     * @param queueCapacity Количество команд, ожидающих потока расчетов, после которого новые команды отклоняются.
+     * @param searchConfig Настройки робота EXPERT; для каждого потока пула создается свой робот.
+     */
+    public GameServer(int port, int computeThreads, int queueCapacity, SearchConfig searchConfig) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        computePool = new ThreadPoolExecutor(computeThreads, computeThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity));
+        robots = ThreadLocal.withInitial(() -> {
+            PlayerRobot[] result = new PlayerRobot[RobotLevel.values().length];
+            for (RobotLevel level : RobotLevel.values()) {
+                result[level.ordinal()] = new PlayerRobot(Color.WHITE, level, searchConfig.getCopy());
+            }
+            return result;
+        });
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Цикл ввода-вывода. Возвращается после stop.
+     */
+    public void run() throws IOException {
+        long nextReportMillis = System.currentTimeMillis() + REPORT_INTERVAL_MILLIS;
+        long lastCommandsCount = 0;
+        while (running) {
+            selector.select(REPORT_INTERVAL_MILLIS);
+
+            Connection connection;
+            while ((connection = completed.poll()) != null) {
+                connection.busy = false;
+                send(connection, connection.reply);
+                processInput(connection);
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    if (key.isWritable()) {
+                        write((Connection) key.attachment());
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read((Connection) key.attachment());
+                    }
+                } catch (IOException e) {
+                    if (key.attachment() != null) {
+                        close((Connection) key.attachment());
+                    }
+                }
+            }
+
+            if (System.currentTimeMillis() >= nextReportMillis) {
+                long commands = commandsCount.sum();
+                System.out.printf("Соединений %d, команд %d (%d/с), в очереди расчетов %d, отклонено %d\n",
+                        connectionsCount, commands, (commands - lastCommandsCount) * 1000 / REPORT_INTERVAL_MILLIS,
+                        computePool.getQueue().size(), rejectedCount.sum());
+                lastCommandsCount = commands;
+                nextReportMillis += REPORT_INTERVAL_MILLIS;
+            }
+        }
+
+        computePool.shutdownNow();
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    /**
+     * Остановка сервера из другого потока.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int computeThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        SearchConfig searchConfig = new SearchConfig();
+        searchConfig.threadsCount = 1;
+        searchConfig.timeLimitMillis = args.length > 3 ? Long.parseLong(args[3]) : 100;
+        searchConfig.instrumentation = false;
+        // у каждого потока расчета свой робот MCTS со своим деревом
+        searchConfig.mctsTreeSizeMb = 8;
+        searchConfig.evaluator = PatternEvaluator.loadOrSimple(PatternEvaluator.DEFAULT_WEIGHTS_PATH);
+        searchConfig.openingBook = OpeningBook.open(OpeningBook.DEFAULT_BOOK_PATH);
+
+        GameServer server = new GameServer(port, computeThreads, queueCapacity, searchConfig);
+        System.out.printf("Сервер запущен на порту %d, потоков расчета %d\n", server.getPort(), computeThreads);
+        server.run();
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Соединение и его партия. Поля, кроме reply, меняет только поток ввода-вывода;
+     * пока busy, партией владеет поток пула расчетов.
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final GameSession session = new GameSession();
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        final ArrayDeque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();
+        boolean busy;
+        volatile String reply;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+            connectionsCount++;
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.input) < 0) {
+            close(connection);
+            return;
+        }
+
+        processInput(connection);
+    }
+
+    /**
+     * Выполнение полученных строк, пока соединение не занято расчетом.
+     */
+    private void processInput(Connection connection) {
+        ByteBuffer input = connection.input;
+        while (!connection.busy && connection.key.isValid()) {
+            int end = -1;
+            for (int i = 0; i < input.position(); i++) {
+                if (input.get(i) == '\n') {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0) {
+                break;
+            }
+
+            String command = new String(input.array(), 0, end, StandardCharsets.UTF_8).strip();
+            input.flip();
+            input.position(end + 1);
+            input.compact();
+            execute(connection, command);
+        }
+
+        // строка не помещается в буфер - соединение закрывается; пока идет расчет, чтение приостанавливается
+        if (!input.hasRemaining() && !connection.busy) {
+            send(connection, "error Слишком длинная строка.");
+            close(connection);
+        } else if (connection.key.isValid()) {
+            setInterest(connection, SelectionKey.OP_READ, input.hasRemaining());
+        }
+    }
+
+    private void execute(Connection connection, String command) {
+        commandsCount.increment();
+        if (!GameSession.needsRobot(command)) {
+            send(connection, connection.session.execute(command, null));
+            if (connection.session.isClosed()) {
+                close(connection);
+            }
+            return;
+        }
+
+        connection.busy = true;
+        try {
+            computePool.execute(() -> {
+                String reply;
+                try {
+                    reply = connection.session.execute(command, robots.get());
+                } catch (RuntimeException e) {
+                    reply = "error Внутренняя ошибка сервера.";
+                }
+                connection.reply = reply;
+                completed.add(connection);
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            connection.busy = false;
+            rejectedCount.increment();
+            send(connection, "error busy");
+        }
+    }
+
+    private void send(Connection connection, String line) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+
+        connection.output.add(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+        try {
+            write(connection);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    private void write(Connection connection) throws IOException {
+        while (!connection.output.isEmpty()) {
+            ByteBuffer buffer = connection.output.peek();
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                break;
+            }
+            connection.output.poll();
+        }
+
+        setInterest(connection, SelectionKey.OP_WRITE, !connection.output.isEmpty());
+    }
+
+    private static void setInterest(Connection connection, int operation, boolean enabled) {
+        int ops = connection.key.interestOps();
+        int newOps = enabled ? ops | operation : ops & ~operation;
+        if (newOps != ops) {
+            connection.key.interestOps(newOps);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+
+        connection.key.cancel();
+        connectionsCount--;
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // соединение уже разорвано
+        }
+    }
+}
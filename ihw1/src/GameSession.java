@@ -0,0 +1,152 @@
+/**
+ * Партия на игровом сервере (см. GameServer): человек играет черными против робота, команды приходят строками.
+ * Команды и ответы (ответ - одна строка):
+ * 'new [размер] [easy|hard|expert|mcts]' - новая партия (по умолчанию 8 и hard);
+ * 'move f5' - ход человека, после него ходит робот (несколько раз подряд, если человеку некуда ходить);
+ * 'undo' - отмена последнего хода человека вместе с ответами робота;
+ * 'board' - строка поля (см. GameField.toBoardString);
+ * 'quit' - завершение сеанса.
+ * Ответ на new, move и undo: 'turn <ходы робота> <доступные ходы>...' - ход человека, или 'end <черных> <белых> <ходы робота>'.
+ * Ходы робота перечисляются через запятую, '-' - робот не ходил. Ошибка - 'error <описание>'.
+ * Экземпляр не потокобезопасен: сервер передает партии следующую команду только после выполнения предыдущей.
+ */
+public class GameSession {
+    public static final int DEFAULT_SIZE = BoardGeometry.DEFAULT_SIZE;
+    public static final RobotLevel DEFAULT_LEVEL = RobotLevel.HARD;
+
+    private GameField field;
+    private RobotLevel robotLevel;
+    private boolean closed;
+
+    /*
+     * Количество ходов (человека и ответов робота) для каждого хода человека - для отмены.
+     */
+    private final int[] turnMovesCounts = new int[BoardGeometry.MAX_SQUARES_COUNT];
+    private int turnsCount;
+
+    private final int[] squares = new int[BoardGeometry.MAX_SQUARES_COUNT];
+
+    /**
+     * true - для выполнения команды нужен ход робота, и ее следует выполнять в пуле расчетов, а не в потоке ввода-вывода.
+     */
+    public static boolean needsRobot(String command) {
+        return command.startsWith("move ");
+    }
+
+    /**
+     * Выполнение команды.
+     * @param robots Белые роботы потока, в котором выполняется команда, по уровням (индекс - RobotLevel.ordinal).
+     * @return Строка ответа без перевода строки.
+     */
+    public String execute(String command, PlayerRobot[] robots) {
+        String[] parts = command.trim().split(" +");
+        switch (parts[0]) {
+            case "new":
+                return startGame(parts);
+            case "move":
+                return makeMove(parts, robots);
+            case "undo":
+                return undoTurn();
+            case "board":
+                return field == null ? "error Партия не начата." : "board " + field.toBoardString();
+            case "quit":
+                closed = true;
+                return "bye";
+            default:
+                return "error Неизвестная команда.";
+        }
+    }
+
+    /**
+     * true - сеанс завершен командой quit.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /* ===== private ===== */
+
+    private String startGame(String[] parts) {
+        int size = DEFAULT_SIZE;
+        RobotLevel level = DEFAULT_LEVEL;
+        try {
+            if (parts.length > 1) {
+                size = Integer.parseInt(parts[1]);
+            }
+            if (parts.length > 2) {
+                level = RobotLevel.valueOf(parts[2].toUpperCase());
+            }
+        } catch (IllegalArgumentException e) {
+            return "error Некорректные параметры партии.";
+        }
+        if (!BoardGeometry.isSupportedSize(size)) {
+            return "error Неподдерживаемый размер поля.";
+        }
+
+        if (field == null || field.getSize() != size) {
+            field = new GameField(size);
+        }
+        field.setupStartState();
+        robotLevel = level;
+        turnsCount = 0;
+        return getStateReply("-");
+    }
+
+    private String makeMove(String[] parts, PlayerRobot[] robots) {
+        if (field == null) {
+            return "error Партия не начата.";
+        }
+
+        Coords2D coords = parts.length == 2 ? GameField.stringToCoords(parts[1]) : null;
+        if (coords == null || !field.isInField(coords)) {
+            return "error Некорректные координаты.";
+        }
+        if (!field.canPlaceChip(coords, Color.BLACK)) {
+            return "error Невозможно установить фишку в выбранную ячейку.";
+        }
+
+        field.placeChip(coords, Color.BLACK);
+        int movesCount = 1;
+
+        StringBuilder robotMoves = new StringBuilder();
+        PlayerRobot robot = robots[robotLevel.ordinal()];
+        while (field.canMakeMove(Color.WHITE)) {
+            robot.makeNextMove(field);
+            movesCount++;
+            if (robotMoves.length() > 0) {
+                robotMoves.append(',');
+            }
+            robotMoves.append(field.getGeometry().squareToString(field.getLastMoveSquare()));
+
+            if (field.canMakeMove(Color.BLACK)) {
+                break;
+            }
+        }
+
+        turnMovesCounts[turnsCount++] = movesCount;
+        return getStateReply(robotMoves.length() > 0 ? robotMoves.toString() : "-");
+    }
+
+    private String undoTurn() {
+        if (field == null || turnsCount == 0) {
+            return "error Отмена невозможна.";
+        }
+
+        field.undoMove(turnMovesCounts[--turnsCount]);
+        return getStateReply("-");
+    }
+
+    private String getStateReply(String robotMoves) {
+        int count = field.getAvailableSquares(Color.BLACK, squares);
+        if (count == 0) {
+            return String.format("end %d %d %s", field.getChipsCount(Color.BLACK), field.getChipsCount(Color.WHITE), robotMoves);
+        }
+
+        StringBuilder result = new StringBuilder("turn ").append(robotMoves);
+        for (int i = 0; i < count; i++) {
+            result.append(' ').append(field.getGeometry().squareToString(squares[i]));
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Нагрузочный клиент GameServer: открывает заданное количество сеансов, в каждом играет партии случайными ходами
+ * с паузой между ответом сервера и следующим ходом, и измеряет задержку ответа на ход (команда move).
+ * Все соединения обслуживает один поток на Selector. В конце выводятся количество ходов и партий и процентили задержки.
+ * Запуск: java LoadGenerator [хост] [порт] [сеансов] [секунд] [уровень робота] [размер поля] [пауза между ходами, мс].
+ */
+public class LoadGenerator {
+    private static final int CONNECTS_PER_ROUND = 500;
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final long REPORT_INTERVAL_MILLIS = 5_000;
+
+    private final InetSocketAddress address;
+    private final String newGameCommand;
+    private final long thinkNanos;
+    private final Random random = new Random(1);
+
+    private final Selector selector;
+    private final ArrayDeque<Session> waiting = new ArrayDeque<Session>();
+
+    /*
+     * Задержки ответов на ходы в наносекундах.
+     */
+    private long[] latencies = new long[1 << 16];
+    private int latenciesCount;
+    private int reportedCount;
+
+    private int connectedCount;
+    private long gamesCount;
+    private long errorsCount;
+    private long disconnectsCount;
+
+    public LoadGenerator(String host, int port, RobotLevel level, int size, long thinkMillis) throws IOException {
+        this.address = new InetSocketAddress(host, port);
+        this.newGameCommand = "new " + size + " " + level.name().toLowerCase();
+        this.thinkNanos = thinkMillis * 1_000_000L;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Нагрузка в течение заданного времени.
+     * @param sessionsCount Количество одновременных сеансов.
+     */
+    public void run(int sessionsCount, long durationMillis) throws IOException {
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + durationMillis * 1_000_000L;
+        long nextReportNanos = startNanos + REPORT_INTERVAL_MILLIS * 1_000_000L;
+        int openedCount = 0;
+
+        while (System.nanoTime() < endNanos) {
+            // соединения открываются порциями, чтобы не переполнить очередь входящих соединений сервера
+            for (int i = 0; i < CONNECTS_PER_ROUND && openedCount < sessionsCount; i++, openedCount++) {
+                openSession();
+            }
+
+            long now = System.nanoTime();
+            while (!waiting.isEmpty() && waiting.peek().nextSendNanos <= now) {
+                Session session = waiting.poll();
+                sendMove(session);
+            }
+
+            long timeoutMillis = waiting.isEmpty() ? 10 : Long.max(1, (waiting.peek().nextSendNanos - now) / 1_000_000);
+            selector.select(Long.min(timeoutMillis, 10));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Session session = (Session) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        finishConnect(session);
+                    } else if (key.isReadable()) {
+                        read(session);
+                    }
+                } catch (IOException e) {
+                    disconnectsCount++;
+                    key.cancel();
+                    session.channel.close();
+                }
+            }
+
+            if (System.nanoTime() >= nextReportNanos) {
+                printReport(startNanos);
+                nextReportNanos += REPORT_INTERVAL_MILLIS * 1_000_000L;
+            }
+        }
+
+        if (reportedCount < latenciesCount) {
+            printReport(startNanos);
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        int sessionsCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        long durationMillis = (args.length > 3 ? Long.parseLong(args[3]) : 60) * 1000;
+        RobotLevel level = args.length > 4 ? RobotLevel.valueOf(args[4].toUpperCase()) : GameSession.DEFAULT_LEVEL;
+        int size = args.length > 5 ? Integer.parseInt(args[5]) : GameSession.DEFAULT_SIZE;
+        long thinkMillis = args.length > 6 ? Long.parseLong(args[6]) : 1000;
+
+        LoadGenerator generator = new LoadGenerator(host, port, level, size, thinkMillis);
+        generator.run(sessionsCount, durationMillis);
+    }
+
+    /* ===== private ===== */
+
+    private static class Session {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        String[] moves;
+        long sentNanos;
+        long nextSendNanos;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private void openSession() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Session session = new Session(channel);
+        if (channel.connect(address)) {
+            channel.register(selector, SelectionKey.OP_READ, session);
+            onConnected(session);
+        } else {
+            channel.register(selector, SelectionKey.OP_CONNECT, session);
+        }
+    }
+
+    private void finishConnect(Session session) throws IOException {
+        session.channel.finishConnect();
+        session.channel.keyFor(selector).interestOps(SelectionKey.OP_READ);
+        onConnected(session);
+    }
+
+    private void onConnected(Session session) throws IOException {
+        connectedCount++;
+        send(session, newGameCommand);
+    }
+
+    private void read(Session session) throws IOException {
+        if (session.channel.read(session.input) < 0) {
+            throw new IOException("Соединение закрыто сервером");
+        }
+
+        ByteBuffer input = session.input;
+        for (int end = indexOfNewLine(input); end >= 0; end = indexOfNewLine(input)) {
+            String reply = new String(input.array(), 0, end, StandardCharsets.UTF_8);
+            input.flip();
+            input.position(end + 1);
+            input.compact();
+            processReply(session, reply);
+        }
+        if (!input.hasRemaining()) {
+            throw new IOException("Слишком длинный ответ сервера");
+        }
+    }
+
+    private void processReply(Session session, String reply) throws IOException {
+        long now = System.nanoTime();
+        String[] parts = reply.split(" ");
+        // задержка учитывается только для принятых ходов, отклоненные считаются ошибками
+        if (session.sentNanos != 0 && !parts[0].equals("error")) {
+            addLatency(now - session.sentNanos);
+        }
+        session.sentNanos = 0;
+
+        if (parts[0].equals("turn")) {
+            session.moves = Arrays.copyOfRange(parts, 2, parts.length);
+            schedule(session, now);
+        } else if (parts[0].equals("end")) {
+            gamesCount++;
+            session.moves = null;
+            send(session, newGameCommand);
+        } else if (parts[0].equals("error")) {
+            // ход отклонен (например, очередь расчетов сервера заполнена) - повтор после паузы
+            errorsCount++;
+            schedule(session, now);
+        }
+    }
+
+    private void schedule(Session session, long now) {
+        session.nextSendNanos = now + thinkNanos;
+        waiting.add(session);
+    }
+
+    private void sendMove(Session session) {
+        if (!session.channel.isOpen()) {
+            return;
+        }
+
+        try {
+            if (session.moves == null) {
+                send(session, newGameCommand);
+                return;
+            }
+            send(session, "move " + session.moves[random.nextInt(session.moves.length)]);
+            session.sentNanos = System.nanoTime();
+        } catch (IOException e) {
+            disconnectsCount++;
+            session.channel.keyFor(selector).cancel();
+        }
+    }
+
+    /**
+     * Отправка строки. Команды короткие, поэтому буфер отправки сокета не переполняется.
+     */
+    private static void send(Session session, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            session.channel.write(buffer);
+        }
+    }
+
+    private void addLatency(long nanos) {
+        if (latenciesCount == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[latenciesCount++] = nanos;
+    }
+
+    /**
+     * Вывод итогов с начала нагрузки и процентилей задержки за интервал с предыдущего отчета (без разогрева и подключения).
+     */
+    private void printReport(long startNanos) {
+        long elapsedMillis = Long.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        long[] sorted = Arrays.copyOf(latencies, latenciesCount);
+        Arrays.sort(sorted);
+        long[] interval = Arrays.copyOfRange(latencies, reportedCount, latenciesCount);
+        Arrays.sort(interval);
+        reportedCount = latenciesCount;
+
+        System.out.printf("%d с: сеансов %d, ходов %d (%d/с), партий %d, ошибок %d, разрывов %d; задержка хода p50 %.2f мс, p99 %.2f мс, max %.2f мс; за интервал p50 %.2f мс, p99 %.2f мс\n",
+                elapsedMillis / 1000, connectedCount, latenciesCount, latenciesCount * 1000L / elapsedMillis, gamesCount, errorsCount,
+                disconnectsCount, getPercentile(sorted, 50) / 1e6, getPercentile(sorted, 99) / 1e6, getPercentile(sorted, 100) / 1e6,
+                getPercentile(interval, 50) / 1e6, getPercentile(interval, 99) / 1e6);
+    }
+
+    /**
+     * @param sorted Задержки по возрастанию.
+     * @param percentile От 0 до 100.
+     * @return Задержка в наносекундах или 0, если задержек нет.
+     */
+    private static long getPercentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Integer.min(sorted.length - 1, Integer.max(0, index))];
+    }
+
+    private static int indexOfNewLine(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.position(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Итоги серии партий с точки зрения первого участника.
+ */
+public class MatchResult {
+    public int wins = 0;
+    public int draws = 0;
+    public int losses = 0;
+
+    /**
+     * Сумма разностей фишек (первый участник минус второй) по всем партиям.
+     */
+    public long discDifferenceSum = 0;
+    public long timeNanos = 0;
+
+    public int getGamesCount() {
+        return wins + draws + losses;
+    }
+
+    public double getAverageDiscDifference() {
+        return getGamesCount() == 0 ? 0 : (double) discDifferenceSum / getGamesCount();
+    }
+
+    /**
+     * Доля набранных очков: победа - 1, ничья - 0.5.
+     */
+    public double getScore() {
+        return getGamesCount() == 0 ? 0.5 : (wins + 0.5 * draws) / getGamesCount();
+    }
+
+    /**
+     * Разница рейтингов Эло, соответствующая доле набранных очков.
+     */
+    public double getEloDifference() {
+        return toElo(getScore());
+    }
+
+    /**
+     * Половина ширины 95% доверительного интервала разницы Эло.
+     */
+    public double getEloError() {
+        int games = getGamesCount();
+        if (games == 0) {
+            return 0;
+        }
+
+        double score = getScore();
+        double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / games;
+        double scoreError = 1.96 * Math.sqrt(variance / games);
+        return (toElo(score + scoreError) - toElo(score - scoreError)) / 2;
+    }
+
+    public double getGamesPerSecond() {
+        return timeNanos == 0 ? 0 : getGamesCount() * 1e9 / timeNanos;
+    }
+
+    /* ===== private ===== */
+
+    private static double toElo(double score) {
+        double clamped = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+}
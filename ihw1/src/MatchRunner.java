@@ -0,0 +1,273 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Серия партий между двумя игроками без вывода на консоль, партии играются параллельно.
+ * Партии идут парами: одинаковый случайный дебют, во второй партии участники меняются цветами.
+ * Запуск: java MatchRunner уровень1 уровень2 [партий] [потоков] [случайных ходов в дебюте] [мс на ход для expert] [каталог журнала].
+ */
+public class MatchRunner {
+    private final Function<Color, Player> firstPlayerFactory;
+    private final Function<Color, Player> secondPlayerFactory;
+
+    public int threadsCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Количество случайных ходов в начале каждой пары партий.
+     */
+    public int openingRandomMoves = 4;
+    public long seed = 1;
+
+    /**
+     * Журнал, в который записываются все партии серии. null - партии не сохраняются.
+     */
+    public GameRecordWriter recordWriter = null;
+    public String firstName = "first";
+    public String secondName = "second";
+
+    /**
+     * @param firstPlayerFactory Создает первого участника заданного цвета. Для каждой партии создается новый игрок.
+     * @param secondPlayerFactory Создает второго участника заданного цвета.
+     */
+    public MatchRunner(Function<Color, Player> firstPlayerFactory, Function<Color, Player> secondPlayerFactory) {
+        this.firstPlayerFactory = firstPlayerFactory;
+        this.secondPlayerFactory = secondPlayerFactory;
+    }
+
+    /**
+     * Проведение серии партий.
+     * @param gamesCount Количество партий (округляется вверх до четного).
+     * @return Итоги с точки зрения первого участника.
+     */
+    public MatchResult run(int gamesCount) {
+        MatchResult result = new MatchResult();
+        long startNanos = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Integer.max(1, threadsCount));
+        try {
+            List<Future<Integer>> games = new ArrayList<Future<Integer>>();
+            for (int pair = 0; pair < (gamesCount + 1) / 2; pair++) {
+                int[] opening = createOpening(new Random(seed + pair));
+                games.add(pool.submit(() -> playGame(opening, Color.BLACK)));
+                games.add(pool.submit(() -> playGame(opening, Color.WHITE)));
+            }
+
+            for (var game : games) {
+                int discDifference = game.get();
+                if (discDifference > 0) {
+                    result.wins++;
+                } else if (discDifference < 0) {
+                    result.losses++;
+                } else {
+                    result.draws++;
+                }
+                result.discDifferenceSum += discDifference;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Ошибка в партии", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        if (recordWriter != null) {
+            try {
+                recordWriter.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        result.timeNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    /**
+     * Партия без отрисовки поля по правилам Game.runGameSession.
+     * @param field Поле с начальной позицией партии.
+     * @param color Цвет игрока, который ходит первым.
+     */
+    public static void playGame(GameField field, Color color, Player playerBlack, Player playerWhite) {
+        playGame(field, color, playerBlack, playerWhite, null);
+    }
+
+    /**
+     * Партия с записью ходов.
+     * @param record Запись, в которую добавляются ходы, пропуски, оценки и время роботов уровня EXPERT. null - без записи.
+     */
+    public static void playGame(GameField field, Color color, Player playerBlack, Player playerWhite, GameRecord record) {
+        while (!field.isFilled()) {
+            if (!playerWhite.canMakeMove(field) && !playerBlack.canMakeMove(field)) {
+                break;
+            }
+
+            Player currentPlayer = color == Color.WHITE ? playerWhite : playerBlack;
+            if (!currentPlayer.canMakeMove(field)) {
+                if (record != null) {
+                    record.addMove(GameRecord.PASS);
+                }
+                color = color.getOppositeColor();
+                continue;
+            }
+
+            long occupied = field.getChipsMask(Color.WHITE) | field.getChipsMask(Color.BLACK);
+            long startNanos = System.nanoTime();
+            if (!currentPlayer.makeNextMove(field)) {
+                if (record != null) {
+                    long placed = (field.getChipsMask(Color.WHITE) | field.getChipsMask(Color.BLACK)) & ~occupied;
+                    record.addMove(Long.numberOfTrailingZeros(placed), getLastEval(currentPlayer),
+                            (int) ((System.nanoTime() - startNanos) / 1_000_000));
+                }
+                color = color.getOppositeColor();
+            }
+        }
+
+        if (record != null) {
+            record.setResult(field);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Использование: java MatchRunner easy|hard|expert|mcts easy|hard|expert|mcts [партий] [потоков] [случайных ходов] [мс на ход] [каталог журнала]");
+            return;
+        }
+
+        int gamesCount = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        SearchConfig searchConfig = new SearchConfig();
+        // партии уже распределены по потокам, поэтому каждый робот ищет в одном потоке
+        searchConfig.threadsCount = 1;
+        searchConfig.transpositionTableSizeMb = 4;
+        searchConfig.mctsTreeSizeMb = 8;
+        searchConfig.evaluator = PatternEvaluator.loadOrSimple(PatternEvaluator.DEFAULT_WEIGHTS_PATH);
+        searchConfig.timeLimitMillis = args.length > 5 ? Long.parseLong(args[5]) : 100;
+        searchConfig.openingBook = OpeningBook.open(OpeningBook.DEFAULT_BOOK_PATH);
+
+        RobotLevel firstLevel = RobotLevel.valueOf(args[0].toUpperCase());
+        RobotLevel secondLevel = RobotLevel.valueOf(args[1].toUpperCase());
+        MatchRunner runner = new MatchRunner(
+                color -> new PlayerRobot(color, firstLevel, searchConfig),
+                color -> new PlayerRobot(color, secondLevel, searchConfig));
+        if (args.length > 3) {
+            runner.threadsCount = Integer.parseInt(args[3]);
+        }
+        if (args.length > 4) {
+            runner.openingRandomMoves = Integer.parseInt(args[4]);
+        }
+        runner.firstName = args[0];
+        runner.secondName = args[1];
+
+        MatchResult result;
+        if (args.length > 6) {
+            try (var writer = new GameRecordWriter(Path.of(args[6]), "match", 64L * 1024 * 1024)) {
+                runner.recordWriter = writer;
+                result = runner.run(gamesCount);
+                System.out.printf("Партий записано в журнал: %d\n", writer.getGamesCount());
+            }
+        } else {
+            result = runner.run(gamesCount);
+        }
+        System.out.printf("%s против %s: партий %d, побед %d, ничьих %d, поражений %d\n",
+                args[0], args[1], result.getGamesCount(), result.wins, result.draws, result.losses);
+        System.out.printf("Средняя разность фишек %+.2f, разница Эло %+.1f ± %.1f, %.2f партий/с\n",
+                result.getAverageDiscDifference(), result.getEloDifference(), result.getEloError(), result.getGamesPerSecond());
+    }
+
+    /* ===== private ===== */
+
+    private int[] createOpening(Random random) {
+        GameField field = new GameField();
+        field.setupStartState();
+        Color color = Color.BLACK;
+
+        int[] result = new int[openingRandomMoves];
+        for (int i = 0; i < openingRandomMoves; i++) {
+            long moves = field.getAvailableMovesMask(color);
+            if (moves == 0) {
+                return Arrays.copyOf(result, i);
+            }
+
+            int skip = random.nextInt(Long.bitCount(moves));
+            for (int j = 0; j < skip; j++) {
+                moves &= moves - 1;
+            }
+            result[i] = Long.numberOfTrailingZeros(moves);
+            field.placeChip(result[i], color);
+            color = color.getOppositeColor();
+        }
+
+        return result;
+    }
+
+    /**
+     * Освобождение потоков и памяти поиска робота после партии.
+     */
+    private static void closePlayer(Player player) {
+        if (player instanceof PlayerRobot robot) {
+            robot.close();
+        }
+    }
+
+    /**
+     * Оценка последнего хода робота уровня EXPERT в единицах оценки поиска, для остальных игроков 0.
+     */
+    private static int getLastEval(Player player) {
+        if (player instanceof PlayerRobot robot && robot.getLastSearchResult() != null) {
+            return robot.getLastSearchResult().score;
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param firstPlayerColor Цвет первого участника.
+     * @return Разность фишек: первый участник минус второй.
+     */
+    private int playGame(int[] opening, Color firstPlayerColor) throws IOException {
+        GameRecord record = recordWriter != null ? new GameRecord() : null;
+        GameField field = new GameField();
+        field.setupStartState();
+        Color color = Color.BLACK;
+        for (int square : opening) {
+            field.placeChip(square, color);
+            color = color.getOppositeColor();
+            if (record != null) {
+                record.addMove(square);
+            }
+        }
+
+        Player firstPlayer = firstPlayerFactory.apply(firstPlayerColor);
+        Player secondPlayer = secondPlayerFactory.apply(firstPlayerColor.getOppositeColor());
+        try {
+            if (firstPlayerColor == Color.BLACK) {
+                playGame(field, color, firstPlayer, secondPlayer, record);
+            } else {
+                playGame(field, color, secondPlayer, firstPlayer, record);
+            }
+        } finally {
+            closePlayer(firstPlayer);
+            closePlayer(secondPlayer);
+        }
+
+        if (record != null) {
+            record.blackName = firstPlayerColor == Color.BLACK ? firstName : secondName;
+            record.whiteName = firstPlayerColor == Color.BLACK ? secondName : firstName;
+            record.hasEvals = true;
+            record.hasTimes = true;
+            recordWriter.write(record);
+        }
+
+        var stats = field.getFieldStats();
+        int blackDifference = stats.blackChips - stats.whiteChips;
+        return firstPlayerColor == Color.BLACK ? blackDifference : -blackDifference;
+    }
+}
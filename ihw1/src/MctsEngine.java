@@ -0,0 +1,686 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Поиск хода методом Монте-Карло по дереву (MCTS) с выбором ветви по UCT.
+ * Итерация спускается от корня по дереву, добавляет потомков узлу, через который прошло EXPANSION_VISITS итераций,
+ * доигрывает партию случайными ходами (доступный угол занимается первым) и поднимает результат к корню.
+ * Дерево хранится в заранее выделенных массивах примитивов; симуляции на полях до 8x8 идут на битовых масках,
+ * на полях больше 8x8 - на копии GameField с отменой ходов; в переборе память не выделяется.
+ * Потоки (SearchConfig.threadsCount) ищут по общему дереву без блокировок: посещение узла засчитывается при спуске,
+ * а результат - после симуляции, поэтому до ее окончания узел выглядит проигранным (виртуальное поражение)
+ * и другие потоки уходят в соседние ветви.
+ * Поддерево позиции, получившейся после хода и ответа соперника, переносится в следующий поиск.
+ * Ограничения: SearchConfig.timeLimitMillis и nodeLimit (количество симуляций), размер дерева - SearchConfig.mctsTreeSizeMb.
+ * Потоки и память дерева освобождает close.
+ */
+public class MctsEngine implements AutoCloseable {
+    /**
+     * Коэффициент исследования в UCT для доли побед от 0 до 1.
+     */
+    private static final double EXPLORATION = 0.4;
+
+    /**
+     * Потомки узла создаются, когда через него проходит эта итерация по счету: лист сначала получает одну симуляцию.
+     */
+    private static final int EXPANSION_VISITS = 2;
+
+    /**
+     * Глубина, на которой в дереве предыдущего поиска ищется текущая позиция (ход, ответ и возможные пропуски).
+     */
+    private static final int REUSE_DEPTH = 4;
+
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    /**
+     * Байт на узел в массивах дерева (см. Tree).
+     */
+    private static final int NODE_BYTES = 15;
+    private static final int MIN_TREE_NODES = 1024;
+
+    /*
+     * Состояния firstChild: потомки не созданы, создаются другим потоком, позиция завершена.
+     * Положительное значение - индекс первого потомка.
+     */
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = -1;
+    private static final int TERMINAL = -2;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final SearchConfig config;
+    private final Worker[] workers;
+    private final ExecutorService helpersPool;
+
+    /*
+     * Текущее дерево и запасное, в которое при переносе копируется поддерево новой позиции.
+     * Выделяются при первом поиске.
+     */
+    private Tree tree;
+    private Tree spareTree;
+
+    /*
+     * Позиция корня дерева: копия поля и цвет игрока, который ходит. null - дерева нет.
+     */
+    private GameField rootField;
+    private Color rootColor;
+
+    /*
+     * Корень и ограничения текущего поиска. Устанавливаются до запуска потоков.
+     */
+    private BoardGeometry geometry;
+    private boolean wide;
+    private long rootPlayer;
+    private long rootOpponent;
+    private long deadlineNanos;
+    private long playoutsPerWorker;
+    private volatile boolean stopRequested;
+
+    public MctsEngine(SearchConfig config) {
+        this.config = config;
+
+        workers = new Worker[Integer.max(1, config.threadsCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i + 1);
+        }
+
+        if (workers.length > 1) {
+            helpersPool = Executors.newFixedThreadPool(workers.length - 1, runnable -> {
+                Thread thread = new Thread(runnable, "mcts-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            helpersPool = null;
+        }
+    }
+
+    /**
+     * Поиск лучшего хода. Поле после поиска остается в исходном состоянии.
+     * @param field Игровое поле.
+     * @param color Цвет игрока, который ходит.
+     * @return Результат поиска. Если ходов нет, bestSquare равен -1.
+     */
+    public MctsResult search(GameField field, Color color) {
+        MctsResult result = new MctsResult();
+        long startNanos = System.nanoTime();
+        stopRequested = false;
+        result.threadsCount = workers.length;
+        if (!field.canMakeMove(color)) {
+            result.timeNanos = System.nanoTime() - startNanos;
+            return result;
+        }
+
+        if (tree == null) {
+            int capacity = (int) Long.max(MIN_TREE_NODES, config.mctsTreeSizeMb * 1024L * 1024 / (2 * NODE_BYTES));
+            tree = new Tree(capacity);
+            spareTree = new Tree(capacity);
+        }
+        result.reusedNodes = moveRoot(field, color);
+
+        geometry = field.getGeometry();
+        wide = geometry.isWide();
+        rootPlayer = wide ? 0 : field.getChipsMask(color);
+        rootOpponent = wide ? 0 : field.getChipsMask(color.getOppositeColor());
+        for (Worker worker : workers) {
+            worker.prepare(field, color);
+        }
+        if (tree.firstChild[0] == UNEXPANDED && !workers[0].expandRoot()) {
+            // перенесенное дерево заполнено: поиск начинается заново
+            clearTree();
+            result.reusedNodes = 0;
+            workers[0].expandRoot();
+        }
+
+        deadlineNanos = config.timeLimitMillis > 0 ? startNanos + config.timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+        playoutsPerWorker = config.nodeLimit > 0 ? (config.nodeLimit + workers.length - 1) / workers.length : Long.MAX_VALUE;
+
+        List<Future<?>> helperTasks = new ArrayList<Future<?>>();
+        for (int i = 1; i < workers.length; i++) {
+            helperTasks.add(helpersPool.submit(workers[i]::run));
+        }
+        workers[0].run();
+        stopRequested = true;
+        for (var task : helperTasks) {
+            try {
+                task.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Ошибка во вспомогательном потоке MCTS", e);
+            }
+        }
+
+        for (Worker worker : workers) {
+            result.playouts += worker.playouts;
+        }
+        int best = getBestChild();
+        result.bestSquare = tree.squares[best];
+        result.winRate = tree.visits[best] == 0 ? 0 : tree.scores[best] / (2.0 * tree.visits[best]);
+        result.treeNodes = tree.getSize();
+
+        rootField = field.getDeepCopy();
+        rootColor = color;
+        result.timeNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    /**
+     * Прерывание текущего поиска из другого потока: search вернет лучший ход по уже сыгранным симуляциям.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Остановка вспомогательных потоков и освобождение дерева. После закрытия поиск недоступен.
+     */
+    @Override
+    public void close() {
+        if (helpersPool != null) {
+            helpersPool.shutdownNow();
+        }
+        tree = null;
+        spareTree = null;
+        rootField = null;
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Узлы дерева в параллельных массивах; потомки узла занимают подряд идущие индексы, корень - индекс 0.
+     * visits - итерации, прошедшие через узел, scores - сумма результатов в полупобедах (победа - 2, ничья - 1)
+     * для игрока, сделавшего ход в узел, squares - этот ход (GameRecord.PASS - пропуск).
+     */
+    private static class Tree {
+        final int[] visits;
+        final int[] scores;
+        final int[] firstChild;
+        final byte[] childCounts;
+        final short[] squares;
+        final AtomicInteger size = new AtomicInteger();
+
+        Tree(int capacity) {
+            visits = new int[capacity];
+            scores = new int[capacity];
+            firstChild = new int[capacity];
+            childCounts = new byte[capacity];
+            squares = new short[capacity];
+        }
+
+        int getCapacity() {
+            return visits.length;
+        }
+
+        /**
+         * Количество узлов: счетчик size может превысить емкость после неудачного выделения.
+         */
+        int getSize() {
+            return Integer.min(size.get(), getCapacity());
+        }
+
+        int getChildCount(int node) {
+            return childCounts[node] & 0xFF;
+        }
+
+        void initNode(int node, int square) {
+            visits[node] = 0;
+            scores[node] = 0;
+            firstChild[node] = UNEXPANDED;
+            childCounts[node] = 0;
+            squares[node] = (short) square;
+        }
+
+        void copyNode(int node, Tree source, int sourceNode) {
+            visits[node] = source.visits[sourceNode];
+            scores[node] = source.scores[sourceNode];
+            firstChild[node] = source.firstChild[sourceNode];
+            childCounts[node] = source.childCounts[sourceNode];
+            squares[node] = source.squares[sourceNode];
+        }
+
+        /**
+         * Выделение подряд идущих узлов.
+         * @return Индекс первого узла или -1, если дерево заполнено.
+         */
+        int allocate(int count) {
+            if (size.get() + count > getCapacity()) {
+                return -1;
+            }
+
+            int first = size.getAndAdd(count);
+            return first + count <= getCapacity() ? first : -1;
+        }
+    }
+
+    /**
+     * Перенос корня в узел текущей позиции из дерева предыдущего поиска.
+     * Если позиции в дереве нет, дерево очищается.
+     * @return Количество перенесенных узлов.
+     */
+    private int moveRoot(GameField field, Color color) {
+        int node = -1;
+        if (rootField != null && rootField.getGeometry() == field.getGeometry()) {
+            node = findNode(rootField, rootColor, 0, 0, field, color);
+        }
+
+        if (node < 0) {
+            clearTree();
+            return 0;
+        }
+        if (node > 0) {
+            compactTree(node);
+        }
+
+        return tree.getSize();
+    }
+
+    private void clearTree() {
+        tree.size.set(1);
+        tree.initNode(0, GameRecord.PASS);
+    }
+
+    /**
+     * Поиск узла позиции target в поддереве node не глубже REUSE_DEPTH.
+     * @param current Позиция узла node; после поиска возвращается в исходное состояние.
+     * @return Индекс узла или -1.
+     */
+    private int findNode(GameField current, Color currentColor, int node, int depth, GameField target, Color targetColor) {
+        if (currentColor == targetColor && current.getHash() == target.getHash()) {
+            return node;
+        }
+        int first = tree.firstChild[node];
+        if (depth == REUSE_DEPTH || first <= 0) {
+            return -1;
+        }
+
+        for (int child = first; child < first + tree.getChildCount(node); child++) {
+            int square = tree.squares[child];
+            if (square != GameRecord.PASS) {
+                current.placeChip(square, currentColor);
+            }
+            int found = findNode(current, currentColor.getOppositeColor(), child, depth + 1, target, targetColor);
+            if (square != GameRecord.PASS) {
+                current.undoMove(1);
+            }
+            if (found >= 0) {
+                return found;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Копирование поддерева узла в запасное дерево в порядке обхода в ширину; запасное дерево становится текущим.
+     */
+    private void compactTree(int newRoot) {
+        Tree target = spareTree;
+        target.copyNode(0, tree, newRoot);
+        int size = 1;
+        // firstChild скопированного узла указывает на потомков в старом дереве, пока узел не обработан
+        for (int node = 0; node < size; node++) {
+            int sourceFirst = target.firstChild[node];
+            if (sourceFirst <= 0) {
+                continue;
+            }
+
+            int count = target.getChildCount(node);
+            for (int i = 0; i < count; i++) {
+                target.copyNode(size + i, tree, sourceFirst + i);
+            }
+            target.firstChild[node] = size;
+            size += count;
+        }
+
+        target.size.set(size);
+        spareTree = tree;
+        tree = target;
+    }
+
+    /**
+     * Потомок корня с наибольшим количеством посещений, при равенстве - с большей суммой результатов.
+     */
+    private int getBestChild() {
+        int first = tree.firstChild[0];
+        int best = first;
+        for (int child = first + 1; child < first + tree.getChildCount(0); child++) {
+            if (tree.visits[child] > tree.visits[best]
+                    || (tree.visits[child] == tree.visits[best] && tree.scores[child] > tree.scores[best])) {
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Поток поиска: собственные буферы, генератор случайных чисел и копия поля (для полей больше 8x8).
+     */
+    private class Worker {
+        final int[] path = new int[2 * BoardGeometry.MAX_SQUARES_COUNT + 2];
+        final int[] squaresBuffer = new int[BoardGeometry.MAX_SQUARES_COUNT];
+        long randomState;
+        long playouts;
+
+        /*
+         * Корень текущего поиска.
+         */
+        GameField field;
+        Color color;
+        long validMask;
+        long cornersMask;
+        int[] cornerSquares;
+
+        Worker(long seed) {
+            randomState = seed * 0x9E3779B97F4A7C15L;
+        }
+
+        void prepare(GameField rootField, Color rootColor) {
+            color = rootColor;
+            validMask = geometry.getValidMask();
+            cornersMask = geometry.getCornersMask();
+            cornerSquares = geometry.getCornerSquares();
+            field = wide ? rootField.getDeepCopy() : null;
+        }
+
+        boolean expandRoot() {
+            return wide ? expandWide(tree, 0, color) : expand(tree, 0, rootPlayer, rootOpponent);
+        }
+
+        void run() {
+            playouts = 0;
+            Tree tree = MctsEngine.this.tree;
+            while (!stopRequested && playouts < playoutsPerWorker) {
+                if (wide) {
+                    iterateWide(tree);
+                } else {
+                    iterate(tree);
+                }
+                playouts++;
+
+                if (playouts % TIME_CHECK_INTERVAL == 0 && System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Итерация на битовых масках: player - фишки игрока, который ходит в текущем узле.
+         */
+        private void iterate(Tree tree) {
+            long player = rootPlayer;
+            long opponent = rootOpponent;
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+            INTS.getAndAdd(tree.visits, 0, 1);
+
+            int reward;
+            while (true) {
+                int first = (int) INTS.getAcquire(tree.firstChild, node);
+                if (first == TERMINAL) {
+                    reward = getFinalReward(player, opponent);
+                    break;
+                }
+                if (first == UNEXPANDED && tree.visits[node] >= EXPANSION_VISITS && expand(tree, node, player, opponent)) {
+                    continue;
+                }
+                if (first <= 0) {
+                    reward = playout(player, opponent);
+                    break;
+                }
+
+                node = selectChild(tree, node, first);
+                INTS.getAndAdd(tree.visits, node, 1);
+                path[++depth] = node;
+
+                int square = tree.squares[node];
+                if (square != GameRecord.PASS) {
+                    long flips = BitBoard.getFlips(player, opponent, square);
+                    player |= flips | (1L << square);
+                    opponent &= ~flips;
+                }
+                long swap = player;
+                player = opponent;
+                opponent = swap;
+            }
+
+            backpropagate(tree, depth, reward);
+        }
+
+        /**
+         * Итерация на копии поля: ходы спуска отменяются после симуляции.
+         */
+        private void iterateWide(Tree tree) {
+            Color current = color;
+            int placed = 0;
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+            INTS.getAndAdd(tree.visits, 0, 1);
+
+            int reward;
+            while (true) {
+                int first = (int) INTS.getAcquire(tree.firstChild, node);
+                if (first == TERMINAL) {
+                    reward = getFinalReward(field, current);
+                    break;
+                }
+                if (first == UNEXPANDED && tree.visits[node] >= EXPANSION_VISITS && expandWide(tree, node, current)) {
+                    continue;
+                }
+                if (first <= 0) {
+                    reward = playoutWide(current);
+                    break;
+                }
+
+                node = selectChild(tree, node, first);
+                INTS.getAndAdd(tree.visits, node, 1);
+                path[++depth] = node;
+
+                int square = tree.squares[node];
+                if (square != GameRecord.PASS) {
+                    field.placeChip(square, current);
+                    placed++;
+                }
+                current = current.getOppositeColor();
+            }
+
+            field.undoMove(placed);
+            backpropagate(tree, depth, reward);
+        }
+
+        /**
+         * Выбор потомка по UCT; непосещенный потомок выбирается сразу.
+         */
+        private int selectChild(Tree tree, int node, int first) {
+            double logVisits = Math.log(tree.visits[node]);
+            int best = first;
+            double bestValue = -1;
+            for (int child = first; child < first + tree.getChildCount(node); child++) {
+                int visits = tree.visits[child];
+                if (visits == 0) {
+                    return child;
+                }
+
+                double value = tree.scores[child] / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * @param reward Результат для игрока, который ходит в последнем узле пути.
+         */
+        private void backpropagate(Tree tree, int depth, int reward) {
+            // в узле хранится результат игрока, сделавшего ход в узел, то есть соперника ходящего в нем
+            int score = 2 - reward;
+            for (int i = depth; i >= 0; i--) {
+                INTS.getAndAdd(tree.scores, path[i], score);
+                score = 2 - score;
+            }
+        }
+
+        /**
+         * Создание потомков узла. Потомки публикуются записью firstChild после заполнения.
+         * @return false - потомков создает другой поток или дерево заполнено.
+         */
+        private boolean expand(Tree tree, int node, long player, long opponent) {
+            if (!INTS.compareAndSet(tree.firstChild, node, UNEXPANDED, EXPANDING)) {
+                return false;
+            }
+
+            long moves = BitBoard.getMoves(player, opponent, validMask);
+            if (moves == 0 && BitBoard.getMoves(opponent, player, validMask) == 0) {
+                INTS.setRelease(tree.firstChild, node, TERMINAL);
+                return true;
+            }
+
+            int count = Integer.max(1, Long.bitCount(moves));
+            int first = tree.allocate(count);
+            if (first < 0) {
+                INTS.setRelease(tree.firstChild, node, UNEXPANDED);
+                return false;
+            }
+
+            if (moves == 0) {
+                tree.initNode(first, GameRecord.PASS);
+            }
+            for (int child = first; moves != 0; child++) {
+                tree.initNode(child, Long.numberOfTrailingZeros(moves));
+                moves &= moves - 1;
+            }
+            tree.childCounts[node] = (byte) count;
+            INTS.setRelease(tree.firstChild, node, first);
+            return true;
+        }
+
+        private boolean expandWide(Tree tree, int node, Color current) {
+            if (!INTS.compareAndSet(tree.firstChild, node, UNEXPANDED, EXPANDING)) {
+                return false;
+            }
+
+            int movesCount = field.getAvailableSquares(current, squaresBuffer);
+            if (movesCount == 0 && !field.canMakeMove(current.getOppositeColor())) {
+                INTS.setRelease(tree.firstChild, node, TERMINAL);
+                return true;
+            }
+
+            int count = Integer.max(1, movesCount);
+            int first = tree.allocate(count);
+            if (first < 0) {
+                INTS.setRelease(tree.firstChild, node, UNEXPANDED);
+                return false;
+            }
+
+            if (movesCount == 0) {
+                tree.initNode(first, GameRecord.PASS);
+            }
+            for (int i = 0; i < movesCount; i++) {
+                tree.initNode(first + i, squaresBuffer[i]);
+            }
+            tree.childCounts[node] = (byte) count;
+            INTS.setRelease(tree.firstChild, node, first);
+            return true;
+        }
+
+        /**
+         * Доигрывание партии случайными ходами; доступный угол занимается первым.
+         * @return Результат для игрока player: 2 - победа, 1 - ничья, 0 - поражение.
+         */
+        private int playout(long player, long opponent) {
+            boolean swapped = false;
+            while (true) {
+                long moves = BitBoard.getMoves(player, opponent, validMask);
+                if (moves == 0) {
+                    if (BitBoard.getMoves(opponent, player, validMask) == 0) {
+                        break;
+                    }
+                } else {
+                    if ((moves & cornersMask) != 0) {
+                        moves &= cornersMask;
+                    }
+                    for (int skip = nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+                        moves &= moves - 1;
+                    }
+                    int square = Long.numberOfTrailingZeros(moves);
+                    long flips = BitBoard.getFlips(player, opponent, square);
+                    player |= flips | (1L << square);
+                    opponent &= ~flips;
+                }
+
+                long swap = player;
+                player = opponent;
+                opponent = swap;
+                swapped = !swapped;
+            }
+
+            int reward = getFinalReward(player, opponent);
+            return swapped ? 2 - reward : reward;
+        }
+
+        /**
+         * То же, что playout, на копии поля; ходы симуляции отменяются.
+         */
+        private int playoutWide(Color start) {
+            Color current = start;
+            int placed = 0;
+            while (true) {
+                int count = field.getAvailableSquares(current, squaresBuffer);
+                if (count == 0) {
+                    if (!field.canMakeMove(current.getOppositeColor())) {
+                        break;
+                    }
+                } else {
+                    field.placeChip(chooseSquareWide(count), current);
+                    placed++;
+                }
+                current = current.getOppositeColor();
+            }
+
+            int reward = getFinalReward(field, start);
+            field.undoMove(placed);
+            return reward;
+        }
+
+        private int chooseSquareWide(int count) {
+            for (int i = 0; i < count; i++) {
+                for (int corner : cornerSquares) {
+                    if (squaresBuffer[i] == corner) {
+                        return corner;
+                    }
+                }
+            }
+
+            return squaresBuffer[nextInt(count)];
+        }
+
+        private int getFinalReward(long player, long opponent) {
+            return 1 + Integer.signum(Long.bitCount(player) - Long.bitCount(opponent));
+        }
+
+        private int getFinalReward(GameField field, Color current) {
+            return 1 + Integer.signum(field.getChipsCount(current) - field.getChipsCount(current.getOppositeColor()));
+        }
+
+        /**
+         * Случайное число от 0 до bound - 1 (xorshift).
+         */
+        private int nextInt(int bound) {
+            randomState ^= randomState << 13;
+            randomState ^= randomState >>> 7;
+            randomState ^= randomState << 17;
+            return (int) (((randomState >>> 32) * bound) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Результат поиска MctsEngine.
+ */
+public class MctsResult {
+    /**
+     * Индекс клетки лучшего хода (см. BoardGeometry). -1 - если ходов нет.
+     */
+    public int bestSquare = -1;
+
+    /**
+     * Доля побед (ничья - половина победы) в симуляциях через лучший ход, от 0 до 1.
+     */
+    public double winRate = 0;
+
+    /**
+     * Количество симуляций во всех потоках.
+     */
+    public long playouts = 0;
+
+    /**
+     * Узлов дерева после поиска и узлов, перешедших из дерева предыдущего хода.
+     */
+    public int treeNodes = 0;
+    public int reusedNodes = 0;
+
+    public int threadsCount = 0;
+    public long timeNanos = 0;
+
+    public long getPlayoutsPerSecond() {
+        if (timeNanos == 0) {
+            return 0;
+        }
+
+        return playouts * 1_000_000_000L / timeNanos;
+    }
+
+    public long getTimeMillis() {
+        return timeNanos / 1_000_000;
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Упорядочивание ходов для перебора с альфа-бета отсечением.
+ * Первым идет ход из таблицы транспозиций, затем ходы-убийцы этого уровня дерева, остальные ходы
+ * ранжируются по таблице истории, статическому приоритету клетки (углы первыми, X-клетки последними)
+ * и, на достаточной оставшейся глубине, по мобильности соперника после хода. На полях больше 8x8 (см. orderSquares)
+ * учитываются только ход из таблицы, убийцы и история.
+ * Состояние (убийцы, история, статистика) свое у каждого потока поиска.
+ */
+public class MoveOrderer {
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Наибольшее количество ходов в одной позиции, с запасом для полей всех размеров (см. GameField.getAvailableSquares).
+     */
+    public static final int MAX_MOVES = BoardGeometry.MAX_SQUARES_COUNT;
+
+    /**
+     * Оставшаяся глубина, начиная с которой учитывается мобильность соперника после хода.
+     */
+    public static final int MOBILITY_ORDERING_DEPTH = 3;
+
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;
+    private static final int PRIORITY_WEIGHT = 16;
+    private static final int MOBILITY_WEIGHT = 256;
+    private static final int HISTORY_LIMIT = 1 << 16;
+
+    /**
+     * Статический приоритет клетки по расстояниям до ближайших краев поля по строке и по столбцу (не больше 3):
+     * углы, X- и C-клетки и центр определяются одинаково для всех размеров, на 8x8 таблица совпадает с обычной.
+     */
+    private static final int[][] EDGE_DISTANCE_PRIORITY = {
+            {100, -20, 10,  5},
+            {-20, -50, -2, -2},
+            { 10,  -2,  1,  1},
+            {  5,  -2,  1,  0}
+    };
+
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[Color.values().length][BoardGeometry.MAX_SQUARES_COUNT];
+    private final int[][] scoresBuffer = new int[MAX_PLY][MAX_MOVES];
+
+    /**
+     * Маска клеток поля для подсчета мобильности на полях меньше 8x8 (см. BoardGeometry).
+     */
+    private long validMask = -1L;
+
+    /**
+     * Статический приоритет клеток поля (в порядке индексов BitBoard), см. EDGE_DISTANCE_PRIORITY.
+     */
+    private int[] squarePriority = getSquarePriority(BoardGeometry.getDefault());
+
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    public MoveOrderer() {
+        clearKillers();
+    }
+
+    /**
+     * Подготовка к новому поиску: ходы-убийцы сбрасываются, история ослабляется вдвое.
+     */
+    public void newSearch() {
+        clearKillers();
+        for (int[] colorHistory : history) {
+            for (int square = 0; square < colorHistory.length; square++) {
+                colorHistory[square] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Выбор поля до 8x8 по маске его клеток (см. BoardGeometry.getValidMask).
+     */
+    public void setValidMask(long validMask) {
+        if (this.validMask != validMask) {
+            this.validMask = validMask;
+            this.squarePriority = getSquarePriority(BoardGeometry.ofValidMask(validMask));
+        }
+    }
+
+    /**
+     * Упорядочивание ходов позиции.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @param moves Маска доступных ходов.
+     * @param hashMove Ход из таблицы транспозиций или TranspositionTable.NO_MOVE.
+     * @param ply Расстояние от корня дерева.
+     * @param depth Оставшаяся глубина.
+     * @param squares Массив, в который записываются клетки ходов в порядке проверки.
+     * @return Количество ходов.
+     */
+    public int orderMoves(long player, long opponent, long moves, int hashMove, int ply, int depth, Color color, int[] squares) {
+        int[] scores = scoresBuffer[ply];
+        int[] plyKillers = killers[ply];
+        int[] colorHistory = history[color.ordinal()];
+        boolean useMobility = depth >= MOBILITY_ORDERING_DEPTH;
+
+        int count = 0;
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            int score;
+            if (square == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (square == plyKillers[0]) {
+                score = KILLER_SCORE;
+            } else if (square == plyKillers[1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                score = colorHistory[square] + squarePriority[square] * PRIORITY_WEIGHT;
+                if (useMobility) {
+                    long flips = BitBoard.getFlips(player, opponent, square);
+                    long newPlayer = player | flips | (1L << square);
+                    long newOpponent = opponent & ~flips;
+                    score -= Long.bitCount(BitBoard.getMoves(newOpponent, newPlayer, validMask)) * MOBILITY_WEIGHT;
+                }
+            }
+
+            // вставка с сохранением убывания оценок
+            int i = count++;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                squares[i] = squares[i - 1];
+                i--;
+            }
+            scores[i] = score;
+            squares[i] = square;
+        }
+
+        return count;
+    }
+
+    /**
+     * Упорядочивание списка ходов поля больше 8x8 на месте.
+     * @param squares Клетки ходов, после вызова - в порядке проверки.
+     * @param count Количество ходов.
+     */
+    public void orderSquares(int[] squares, int count, int hashMove, int ply, Color color) {
+        int[] scores = scoresBuffer[ply];
+        int[] plyKillers = killers[ply];
+        int[] colorHistory = history[color.ordinal()];
+
+        for (int n = 0; n < count; n++) {
+            int square = squares[n];
+            int score;
+            if (square == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (square == plyKillers[0]) {
+                score = KILLER_SCORE;
+            } else if (square == plyKillers[1]) {
+                score = KILLER_SCORE - 1;
+            } else {
+                score = colorHistory[square];
+            }
+
+            int i = n;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                squares[i] = squares[i - 1];
+                i--;
+            }
+            scores[i] = score;
+            squares[i] = square;
+        }
+    }
+
+    /**
+     * Учет хода, вызвавшего отсечение.
+     * @param moveNumber Номер хода в порядке проверки, начиная с 0.
+     */
+    public void onCutoff(int square, int ply, int depth, Color color, int moveNumber) {
+        cutoffs++;
+        if (moveNumber == 0) {
+            firstMoveCutoffs++;
+        }
+
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != square) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = square;
+        }
+
+        int[] colorHistory = history[color.ordinal()];
+        colorHistory[square] += depth * depth;
+        if (colorHistory[square] > HISTORY_LIMIT) {
+            for (int i = 0; i < colorHistory.length; i++) {
+                colorHistory[i] /= 2;
+            }
+        }
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public void resetCounters() {
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /* ===== private ===== */
+
+    private static int[] getSquarePriority(BoardGeometry geometry) {
+        int last = geometry.getSize() - 1;
+        int[] result = new int[BitBoard.SQUARES_COUNT];
+        for (int x = 0; x <= last; x++) {
+            for (int y = 0; y <= last; y++) {
+                int distanceX = Integer.min(Integer.min(x, last - x), EDGE_DISTANCE_PRIORITY.length - 1);
+                int distanceY = Integer.min(Integer.min(y, last - y), EDGE_DISTANCE_PRIORITY.length - 1);
+                result[geometry.toSquare(x, y)] = EDGE_DISTANCE_PRIORITY[distanceX][distanceY];
+            }
+        }
+
+        return result;
+    }
+
+    private void clearKillers() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = TranspositionTable.NO_MOVE;
+            plyKillers[1] = TranspositionTable.NO_MOVE;
+        }
+    }
+}
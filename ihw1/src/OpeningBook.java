@@ -0,0 +1,149 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Книга дебютов: лучшие ходы для позиций начала партии.
+ * Симметричные позиции хранятся одной записью: ключ позиции - наименьший хеш (см. BitBoard.getPositionKey)
+ * среди 8 преобразований симметрии, ход записан для преобразования, которое дает этот хеш.
+ * Файл: заголовок (сигнатура, версия, количество записей), затем записи по 16 байт
+ * (ключ long, оценка int, клетка хода int), отсортированные по ключу. Файл отображается в память
+ * и просматривается двоичным поиском без чтения целиком. Книгу строит OpeningBookBuilder.
+ */
+public class OpeningBook {
+    public static final String DEFAULT_BOOK_PATH = "book.bin";
+
+    private static final int FILE_MAGIC = 0x524F424B;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 16;
+
+    private final MappedByteBuffer buffer;
+    private final long entriesCount;
+
+    /**
+     * Открытие книги.
+     * @return Книга или null, если файла нет или он имеет неверный формат.
+     */
+    public static OpeningBook open(String path) {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            // отображение остается действительным после закрытия канала
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != FILE_MAGIC || buffer.getInt(4) != FILE_VERSION) {
+                return null;
+            }
+
+            long entriesCount = buffer.getLong(8);
+            if (HEADER_SIZE + entriesCount * RECORD_SIZE != buffer.limit()) {
+                return null;
+            }
+
+            return new OpeningBook(buffer, entriesCount);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Сохранение книги.
+     * @param keys Ключи позиций (см. getCanonicalKey), отсортированные по возрастанию.
+     * @param scores Оценки позиций с точки зрения игрока, который ходит.
+     * @param squares Клетки ходов в преобразовании симметрии, которое дает ключ.
+     */
+    public static void save(String path, long[] keys, int[] scores, int[] squares) throws IOException {
+        try (var output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            output.writeInt(FILE_MAGIC);
+            output.writeInt(FILE_VERSION);
+            output.writeLong(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                output.writeLong(keys[i]);
+                output.writeInt(scores[i]);
+                output.writeInt(squares[i]);
+            }
+        }
+    }
+
+    /**
+     * Поиск хода в книге.
+     * @param player Фишки игрока, который ходит.
+     * @param opponent Фишки соперника.
+     * @return Индекс клетки хода или -1, если позиции нет в книге.
+     */
+    public int findMove(long player, long opponent) {
+        int symmetry = getCanonicalSymmetry(player, opponent);
+        long record = findRecord(getKey(player, opponent, symmetry));
+        if (record < 0) {
+            return -1;
+        }
+
+        int square = buffer.getInt((int) (record + 12));
+        return BitBoard.transformSquare(square, BitBoard.getInverseSymmetry(symmetry));
+    }
+
+    public long getEntriesCount() {
+        return entriesCount;
+    }
+
+    /**
+     * Ключ позиции, одинаковый для всех ее симметричных вариантов.
+     */
+    public static long getCanonicalKey(long player, long opponent) {
+        return getKey(player, opponent, getCanonicalSymmetry(player, opponent));
+    }
+
+    /**
+     * Преобразование симметрии, которое дает наименьший хеш позиции.
+     */
+    public static int getCanonicalSymmetry(long player, long opponent) {
+        int result = 0;
+        long bestKey = BitBoard.getPositionKey(player, opponent);
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            long key = getKey(player, opponent, symmetry);
+            if (key < bestKey) {
+                bestKey = key;
+                result = symmetry;
+            }
+        }
+
+        return result;
+    }
+
+    /* ===== private ===== */
+
+    private OpeningBook(MappedByteBuffer buffer, long entriesCount) {
+        this.buffer = buffer;
+        this.entriesCount = entriesCount;
+    }
+
+    private static long getKey(long player, long opponent, int symmetry) {
+        return BitBoard.getPositionKey(BitBoard.transform(player, symmetry), BitBoard.transform(opponent, symmetry));
+    }
+
+    /**
+     * Двоичный поиск записи.
+     * @return Смещение записи в файле или -1.
+     */
+    private long findRecord(long key) {
+        long low = 0;
+        long high = entriesCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long offset = HEADER_SIZE + middle * RECORD_SIZE;
+            long middleKey = buffer.getLong((int) offset);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return offset;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Построение книги дебютов: все позиции, достижимые из начальной за заданное количество ходов
+ * (симметричные позиции считаются одной), оцениваются поиском SearchEngine с ограничением по узлам.
+ * Пропуск хода, как и в Perft, считается ходом.
+ * Запуск: java OpeningBookBuilder ходов [узлов на позицию] [потоков] [файл книги].
+ */
+public class OpeningBookBuilder {
+    private final SearchConfig searchConfig;
+    private final int threadsCount;
+
+    /**
+     * Записи книги по ключу позиции: {оценка, клетка хода}.
+     */
+    private final Map<Long, int[]> entries = new HashMap<Long, int[]>();
+
+    public OpeningBookBuilder(SearchConfig searchConfig, int threadsCount) {
+        this.searchConfig = searchConfig;
+        this.threadsCount = threadsCount;
+    }
+
+    /**
+     * Оценка всех позиций на расстоянии от 0 до plies - 1 ходов от начальной.
+     */
+    public void build(int plies) {
+        GameField field = new GameField();
+        field.setupStartState();
+        List<long[]> level = new ArrayList<long[]>();
+        level.add(new long[]{field.getChipsMask(Color.BLACK), field.getChipsMask(Color.WHITE)});
+
+        ExecutorService pool = Executors.newFixedThreadPool(Integer.max(1, threadsCount));
+        try {
+            for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+                long startNanos = System.nanoTime();
+                searchLevel(level, pool);
+                System.out.printf("Ход %d: позиций %d, время %d мс\n", ply, level.size(), (System.nanoTime() - startNanos) / 1_000_000);
+                level = getNextLevel(level);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Ошибка при оценке позиций", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void save(String path) throws IOException {
+        long[] keys = new long[entries.size()];
+        int index = 0;
+        for (long key : entries.keySet()) {
+            keys[index++] = key;
+        }
+        Arrays.sort(keys);
+
+        int[] scores = new int[keys.length];
+        int[] squares = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int[] entry = entries.get(keys[i]);
+            scores[i] = entry[0];
+            squares[i] = entry[1];
+        }
+
+        OpeningBook.save(path, keys, scores, squares);
+    }
+
+    public int getEntriesCount() {
+        return entries.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Использование: java OpeningBookBuilder ходов [узлов на позицию] [потоков] [файл книги]");
+            return;
+        }
+
+        int plies = Integer.parseInt(args[0]);
+        int threadsCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        String path = args.length > 3 ? args[3] : OpeningBook.DEFAULT_BOOK_PATH;
+
+        SearchConfig searchConfig = new SearchConfig();
+        searchConfig.threadsCount = 1;
+        searchConfig.timeLimitMillis = 0;
+        searchConfig.nodeLimit = args.length > 1 ? Long.parseLong(args[1]) : 200_000;
+        searchConfig.evaluator = PatternEvaluator.loadOrSimple(PatternEvaluator.DEFAULT_WEIGHTS_PATH);
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(searchConfig, threadsCount);
+        builder.build(plies);
+        builder.save(path);
+        System.out.printf("Книга сохранена в %s: записей %d\n", path, builder.getEntriesCount());
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Оценка позиций уровня: позиции делятся на части по числу потоков, у каждой части свой поиск.
+     */
+    private void searchLevel(List<long[]> level, ExecutorService pool) throws InterruptedException, ExecutionException {
+        int partsCount = Integer.max(1, threadsCount);
+        List<Future<List<long[]>>> parts = new ArrayList<Future<List<long[]>>>();
+        for (int part = 0; part < partsCount; part++) {
+            List<long[]> positions = level.subList(level.size() * part / partsCount, level.size() * (part + 1) / partsCount);
+            parts.add(pool.submit(() -> searchPositions(positions)));
+        }
+
+        for (var part : parts) {
+            for (long[] entry : part.get()) {
+                entries.put(entry[0], new int[]{(int) entry[1], (int) entry[2]});
+            }
+        }
+    }
+
+    /**
+     * @return Записи {ключ, оценка, клетка хода} для позиций, в которых есть ход.
+     */
+    private List<long[]> searchPositions(List<long[]> positions) {
+        try (SearchEngine searchEngine = new SearchEngine(searchConfig)) {
+            GameField field = new GameField();
+            List<long[]> result = new ArrayList<long[]>();
+
+            for (long[] position : positions) {
+                long player = position[0];
+                long opponent = position[1];
+                if (BitBoard.getMoves(player, opponent) == 0) {
+                    continue;
+                }
+
+                // игрок, который ходит, играет черными
+                field.setupFromMasks(opponent, player);
+                SearchResult searchResult = searchEngine.search(field, Color.BLACK);
+
+                int symmetry = OpeningBook.getCanonicalSymmetry(player, opponent);
+                result.add(new long[]{
+                        OpeningBook.getCanonicalKey(player, opponent),
+                        searchResult.score,
+                        BitBoard.transformSquare(searchResult.bestSquare, symmetry)
+                });
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Позиции после всех ходов позиций уровня, без повторов с учетом симметрии.
+     */
+    private static List<long[]> getNextLevel(List<long[]> level) {
+        Set<Long> keys = new HashSet<Long>();
+        List<long[]> result = new ArrayList<long[]>();
+
+        for (long[] position : level) {
+            long player = position[0];
+            long opponent = position[1];
+            long moves = BitBoard.getMoves(player, opponent);
+            if (moves == 0) {
+                if (BitBoard.getMoves(opponent, player) != 0 && keys.add(OpeningBook.getCanonicalKey(opponent, player))) {
+                    result.add(new long[]{opponent, player});
+                }
+                continue;
+            }
+
+            while (moves != 0) {
+                int square = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+
+                long flips = BitBoard.getFlips(player, opponent, square);
+                long newPlayer = opponent & ~flips;
+                long newOpponent = player | flips | (1L << square);
+                if (keys.add(OpeningBook.getCanonicalKey(newPlayer, newOpponent))) {
+                    result.add(new long[]{newPlayer, newOpponent});
+                }
+            }
+        }
+
+        return result;
+    }
+}
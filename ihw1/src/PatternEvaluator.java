@@ -0,0 +1,230 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Оценка позиции по шаблонам (n-tuple): края, углы 3x3, горизонтали и диагонали.
+ * Каждый экземпляр шаблона - набор клеток, состояние которых (пусто, свой, чужой) кодируется
+ * числом в троичной системе и служит индексом в таблице весов. Симметричные экземпляры шаблона
+ * используют общую таблицу. Таблицы весов свои для каждой стадии партии (по количеству фишек).
+ * Веса обучаются PatternTrainer и хранятся в двоичном файле (см. save).
+ */
+public class PatternEvaluator implements Evaluator {
+    public static final String DEFAULT_WEIGHTS_PATH = "weights.bin";
+
+    public static final int STAGES_COUNT = 4;
+
+    /**
+     * Количество единиц оценки на одну фишку разности.
+     */
+    public static final int DISC_SCALE = 64;
+
+    private static final int FILE_MAGIC = 0x52565057;
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Клетки экземпляров шаблонов и тип (номер таблицы весов) каждого экземпляра.
+     */
+    private static final int[][] INSTANCE_SQUARES;
+    private static final int[] INSTANCE_TYPES;
+    private static final int[] TYPE_SIZES;
+
+    static {
+        // базовые шаблоны в координатах (x, y), остальные экземпляры получаются поворотами и отражениями
+        int[][][] basePatterns = {
+                {{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {0, 5}, {0, 6}, {0, 7}},
+                {{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}},
+                {{1, 0}, {1, 1}, {1, 2}, {1, 3}, {1, 4}, {1, 5}, {1, 6}, {1, 7}},
+                {{2, 0}, {2, 1}, {2, 2}, {2, 3}, {2, 4}, {2, 5}, {2, 6}, {2, 7}},
+                {{3, 0}, {3, 1}, {3, 2}, {3, 3}, {3, 4}, {3, 5}, {3, 6}, {3, 7}},
+                {{0, 0}, {1, 1}, {2, 2}, {3, 3}, {4, 4}, {5, 5}, {6, 6}, {7, 7}},
+                {{0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 7}},
+                {{0, 2}, {1, 3}, {2, 4}, {3, 5}, {4, 6}, {5, 7}},
+                {{0, 3}, {1, 4}, {2, 5}, {3, 6}, {4, 7}},
+                {{0, 4}, {1, 5}, {2, 6}, {3, 7}},
+        };
+
+        List<int[]> instances = new ArrayList<int[]>();
+        List<Integer> types = new ArrayList<Integer>();
+        TYPE_SIZES = new int[basePatterns.length];
+
+        for (int type = 0; type < basePatterns.length; type++) {
+            TYPE_SIZES[type] = pow3(basePatterns[type].length);
+
+            List<Long> usedSquareSets = new ArrayList<Long>();
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                int[] squares = new int[basePatterns[type].length];
+                long squareSet = 0;
+                for (int i = 0; i < squares.length; i++) {
+                    squares[i] = BitBoard.transformSquare(BitBoard.toSquare(basePatterns[type][i][0], basePatterns[type][i][1]), symmetry);
+                    squareSet |= 1L << squares[i];
+                }
+
+                // отражение может дать тот же набор клеток - такой экземпляр не добавляется
+                if (!usedSquareSets.contains(squareSet)) {
+                    usedSquareSets.add(squareSet);
+                    instances.add(squares);
+                    types.add(type);
+                }
+            }
+        }
+
+        INSTANCE_SQUARES = instances.toArray(new int[0][]);
+        INSTANCE_TYPES = types.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private final short[][][] weights;
+    private final short[] stageBias;
+
+    /**
+     * @param weights Веса [стадия][тип шаблона][индекс].
+     * @param stageBias Смещение оценки для каждой стадии.
+     */
+    public PatternEvaluator(short[][][] weights, short[] stageBias) {
+        this.weights = weights;
+        this.stageBias = stageBias;
+    }
+
+    @Override
+    public int evaluate(long player, long opponent) {
+        int stage = getStage(player, opponent);
+        short[][] stageWeights = weights[stage];
+
+        int result = stageBias[stage];
+        for (int i = 0; i < INSTANCE_SQUARES.length; i++) {
+            result += stageWeights[INSTANCE_TYPES[i]][getIndex(player, opponent, INSTANCE_SQUARES[i])];
+        }
+
+        return Integer.max(-SearchEngine.WIN_SCORE + 1, Integer.min(SearchEngine.WIN_SCORE - 1, result));
+    }
+
+    /**
+     * Загрузка весов из файла.
+     * @return Оценщик или null, если файла нет или он имеет неверный формат.
+     */
+    public static PatternEvaluator load(String path) {
+        try (var input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION
+                    || input.readInt() != STAGES_COUNT || input.readInt() != TYPE_SIZES.length) {
+                return null;
+            }
+
+            short[][][] weights = createWeights();
+            short[] stageBias = new short[STAGES_COUNT];
+            for (int stage = 0; stage < STAGES_COUNT; stage++) {
+                stageBias[stage] = input.readShort();
+                for (short[] table : weights[stage]) {
+                    for (int i = 0; i < table.length; i++) {
+                        table[i] = input.readShort();
+                    }
+                }
+            }
+
+            return new PatternEvaluator(weights, stageBias);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Загрузка весов из файла, если он есть.
+     * @return Оценщик по шаблонам, либо SimpleEvaluator, если веса загрузить не удалось.
+     */
+    public static Evaluator loadOrSimple(String path) {
+        PatternEvaluator result = load(path);
+        if (result == null) {
+            return new SimpleEvaluator();
+        }
+
+        return result;
+    }
+
+    /**
+     * Сохранение весов: заголовок (сигнатура, версия, количество стадий и типов шаблонов),
+     * затем для каждой стадии смещение и таблицы весов по порядку типов, все значения - short.
+     */
+    public void save(String path) throws IOException {
+        try (var output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            output.writeInt(FILE_MAGIC);
+            output.writeInt(FILE_VERSION);
+            output.writeInt(STAGES_COUNT);
+            output.writeInt(TYPE_SIZES.length);
+            for (int stage = 0; stage < STAGES_COUNT; stage++) {
+                output.writeShort(stageBias[stage]);
+                for (short[] table : weights[stage]) {
+                    for (short weight : table) {
+                        output.writeShort(weight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Пустые таблицы весов нужного размера.
+     */
+    public static short[][][] createWeights() {
+        short[][][] result = new short[STAGES_COUNT][TYPE_SIZES.length][];
+        for (short[][] stageWeights : result) {
+            for (int type = 0; type < TYPE_SIZES.length; type++) {
+                stageWeights[type] = new short[TYPE_SIZES[type]];
+            }
+        }
+
+        return result;
+    }
+
+    public static int getStage(long player, long opponent) {
+        int discs = Long.bitCount(player | opponent);
+        return Integer.min(STAGES_COUNT - 1, (discs - 4) * STAGES_COUNT / (BitBoard.SQUARES_COUNT - 4));
+    }
+
+    public static int getInstancesCount() {
+        return INSTANCE_SQUARES.length;
+    }
+
+    public static int getInstanceType(int instance) {
+        return INSTANCE_TYPES[instance];
+    }
+
+    public static int getTypesCount() {
+        return TYPE_SIZES.length;
+    }
+
+    public static int getTypeSize(int type) {
+        return TYPE_SIZES[type];
+    }
+
+    /**
+     * Индекс состояния экземпляра шаблона: цифры 0 - пусто, 1 - фишка игрока, 2 - фишка соперника.
+     */
+    public static int getInstanceIndex(long player, long opponent, int instance) {
+        return getIndex(player, opponent, INSTANCE_SQUARES[instance]);
+    }
+
+    /* ===== private ===== */
+
+    private static int getIndex(long player, long opponent, int[] squares) {
+        int result = 0;
+        for (int square : squares) {
+            result = result * 3 + (int) ((player >>> square) & 1) + 2 * (int) ((opponent >>> square) & 1);
+        }
+
+        return result;
+    }
+
+    private static int pow3(int power) {
+        int result = 1;
+        for (int i = 0; i < power; i++) {
+            result *= 3;
+        }
+
+        return result;
+    }
+}
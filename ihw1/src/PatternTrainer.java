@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Обучение весов PatternEvaluator на партиях робота против самого себя.
+ * Каждая позиция партии с точки зрения игрока, который ходит, получает целевую оценку - итоговую разность фишек партии.
+ * Веса подбираются стохастическим градиентным спуском по квадрату ошибки и сохраняются в двоичный файл.
+ * Запуск: java PatternTrainer партий [узлов на ход] [эпох] [потоков] [файл весов].
+ */
+public class PatternTrainer {
+    /**
+     * Количество случайных ходов в начале каждой партии, чтобы партии не повторялись.
+     */
+    private static final int OPENING_RANDOM_MOVES = 10;
+    private static final double LEARNING_RATE = 0.002;
+
+    private final List<long[]> positions = new ArrayList<long[]>();
+    private final List<Integer> targets = new ArrayList<Integer>();
+
+    private final double[][][] weights = new double[PatternEvaluator.STAGES_COUNT][PatternEvaluator.getTypesCount()][];
+    private final double[] stageBias = new double[PatternEvaluator.STAGES_COUNT];
+
+    public PatternTrainer() {
+        for (double[][] stageWeights : weights) {
+            for (int type = 0; type < stageWeights.length; type++) {
+                stageWeights[type] = new double[PatternEvaluator.getTypeSize(type)];
+            }
+        }
+    }
+
+    /**
+     * Генерация обучающих позиций партиями робота против самого себя.
+     * @param searchConfig Настройки поиска робота, рекомендуется ограничение по узлам.
+     */
+    public void generateGames(int gamesCount, SearchConfig searchConfig, int threadsCount, long seed) {
+        ExecutorService pool = Executors.newFixedThreadPool(Integer.max(1, threadsCount));
+        try {
+            List<Future<List<long[]>>> games = new ArrayList<Future<List<long[]>>>();
+            for (int i = 0; i < gamesCount; i++) {
+                long gameSeed = seed + i;
+                games.add(pool.submit(() -> playGame(searchConfig, new Random(gameSeed))));
+            }
+
+            for (var game : games) {
+                for (long[] position : game.get()) {
+                    positions.add(new long[]{position[0], position[1]});
+                    targets.add((int) position[2]);
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Ошибка в партии", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Одна эпоха градиентного спуска по всем позициям в случайном порядке.
+     * @return Средний квадрат ошибки в фишках до обновления весов.
+     */
+    public double trainEpoch(Random random) {
+        int[] order = new int[positions.size()];
+        for (int i = 0; i < order.length; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        double errorSum = 0;
+        for (int index : order) {
+            long player = positions.get(index)[0];
+            long opponent = positions.get(index)[1];
+            int stage = PatternEvaluator.getStage(player, opponent);
+
+            double error = targets.get(index) - predict(player, opponent);
+            errorSum += error * error;
+
+            double step = LEARNING_RATE * error;
+            stageBias[stage] += step;
+            for (int instance = 0; instance < PatternEvaluator.getInstancesCount(); instance++) {
+                int type = PatternEvaluator.getInstanceType(instance);
+                weights[stage][type][PatternEvaluator.getInstanceIndex(player, opponent, instance)] += step;
+            }
+        }
+
+        return order.length == 0 ? 0 : errorSum / order.length;
+    }
+
+    /**
+     * Перевод весов в целые числа формата PatternEvaluator.
+     */
+    public PatternEvaluator createEvaluator() {
+        short[][][] result = PatternEvaluator.createWeights();
+        short[] resultBias = new short[PatternEvaluator.STAGES_COUNT];
+        for (int stage = 0; stage < PatternEvaluator.STAGES_COUNT; stage++) {
+            resultBias[stage] = toShort(stageBias[stage]);
+            for (int type = 0; type < weights[stage].length; type++) {
+                for (int i = 0; i < weights[stage][type].length; i++) {
+                    result[stage][type][i] = toShort(weights[stage][type][i]);
+                }
+            }
+        }
+
+        return new PatternEvaluator(result, resultBias);
+    }
+
+    public int getPositionsCount() {
+        return positions.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Использование: java PatternTrainer партий [узлов на ход] [эпох] [потоков] [файл весов]");
+            return;
+        }
+
+        int gamesCount = Integer.parseInt(args[0]);
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int threadsCount = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String path = args.length > 4 ? args[4] : PatternEvaluator.DEFAULT_WEIGHTS_PATH;
+
+        SearchConfig searchConfig = new SearchConfig();
+        searchConfig.threadsCount = 1;
+        searchConfig.transpositionTableSizeMb = 4;
+        searchConfig.timeLimitMillis = 10_000;
+        searchConfig.nodeLimit = args.length > 1 ? Long.parseLong(args[1]) : 20_000;
+        searchConfig.endgameEmptiesThreshold = 12;
+        // если веса уже есть, партии играются с ними - так обучение можно повторять, улучшая оценку
+        searchConfig.evaluator = PatternEvaluator.loadOrSimple(path);
+
+        PatternTrainer trainer = new PatternTrainer();
+        long startNanos = System.nanoTime();
+        trainer.generateGames(gamesCount, searchConfig, threadsCount, 1);
+        System.out.printf("Сыграно партий: %d, позиций: %d, время %d мс\n",
+                gamesCount, trainer.getPositionsCount(), (System.nanoTime() - startNanos) / 1_000_000);
+
+        Random random = new Random(1);
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double error = trainer.trainEpoch(random);
+            System.out.printf("Эпоха %d: среднеквадратичная ошибка %.2f фишки\n", epoch, Math.sqrt(error));
+        }
+
+        trainer.createEvaluator().save(path);
+        System.out.printf("Веса сохранены в %s\n", path);
+    }
+
+    /* ===== private ===== */
+
+    private double predict(long player, long opponent) {
+        int stage = PatternEvaluator.getStage(player, opponent);
+        double result = stageBias[stage];
+        for (int instance = 0; instance < PatternEvaluator.getInstancesCount(); instance++) {
+            int type = PatternEvaluator.getInstanceType(instance);
+            result += weights[stage][type][PatternEvaluator.getInstanceIndex(player, opponent, instance)];
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Позиции партии: фишки игрока, который ходит, фишки соперника и итоговая разность фишек для этого игрока.
+     */
+    private static List<long[]> playGame(SearchConfig searchConfig, Random random) {
+        GameField field = new GameField();
+        field.setupStartState();
+        try (SearchEngine searchEngine = new SearchEngine(searchConfig)) {
+            List<long[]> positions = new ArrayList<long[]>();
+            List<Color> colors = new ArrayList<Color>();
+
+            Color color = Color.BLACK;
+            int movesCount = 0;
+            while (field.canMakeMove(Color.BLACK) || field.canMakeMove(Color.WHITE)) {
+                long moves = field.getAvailableMovesMask(color);
+                if (moves == 0) {
+                    color = color.getOppositeColor();
+                    continue;
+                }
+
+                int square;
+                if (movesCount < OPENING_RANDOM_MOVES) {
+                    int skip = random.nextInt(Long.bitCount(moves));
+                    for (int j = 0; j < skip; j++) {
+                        moves &= moves - 1;
+                    }
+                    square = Long.numberOfTrailingZeros(moves);
+                } else {
+                    positions.add(new long[]{field.getChipsMask(color), field.getChipsMask(color.getOppositeColor()), 0});
+                    colors.add(color);
+                    square = searchEngine.search(field, color).bestSquare;
+                }
+
+                field.placeChip(square, color);
+                color = color.getOppositeColor();
+                movesCount++;
+            }
+
+            int blackDifference = Long.bitCount(field.getChipsMask(Color.BLACK)) - Long.bitCount(field.getChipsMask(Color.WHITE));
+            for (int i = 0; i < positions.size(); i++) {
+                positions.get(i)[2] = colors.get(i) == Color.BLACK ? blackDifference : -blackDifference;
+            }
+
+            return positions;
+        }
+    }
+
+    private static short toShort(double discs) {
+        long value = Math.round(discs * PatternEvaluator.DISC_SCALE);
+        return (short) Long.max(Short.MIN_VALUE, Long.min(Short.MAX_VALUE, value));
+    }
+}
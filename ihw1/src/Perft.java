@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Перебор всех последовательностей ходов до заданной глубины (perft) для проверки генератора ходов.
+ * Пропуск хода, как и в Game.runGameSession, передает ход сопернику и считается ходом;
+ * партия заканчивается, когда ни один игрок не может сходить.
+ * Запуск: java Perft глубина [потоки] [размер поля | позиция (см. GameField.setupFromString) X|O].
+ */
+public class Perft {
+    /**
+     * Известные количества листьев для начальной позиции поля 8x8 на глубинах 1..11.
+     */
+    private static final long[] START_POSITION_LEAVES = {
+            1, 4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288, 24571284, 212258800
+    };
+
+    /**
+     * Количество посещенных позиций, включая корень.
+     */
+    public long nodes;
+
+    /**
+     * Позиции на заданной глубине и позиции завершенных раньше партий.
+     */
+    public long leaves;
+    public long passes;
+    public long gameEnds;
+
+    /**
+     * Буферы ходов по уровням перебора для полей больше 8x8.
+     */
+    private int[][] squaresBuffer = new int[0][];
+
+    public void add(Perft other) {
+        nodes += other.nodes;
+        leaves += other.leaves;
+        passes += other.passes;
+        gameEnds += other.gameEnds;
+    }
+
+    /**
+     * Перебор от позиции поля. Поле после перебора остается в исходном состоянии.
+     */
+    public void run(GameField field, Color color, int depth) {
+        if (field.getGeometry().isWide()) {
+            if (squaresBuffer.length <= depth) {
+                squaresBuffer = new int[depth + 1][field.getGeometry().getSquareIndexBound()];
+            }
+            runWide(field, color, depth);
+            return;
+        }
+
+        nodes++;
+        if (depth == 0) {
+            leaves++;
+            return;
+        }
+
+        long moves = field.getAvailableMovesMask(color);
+        if (moves == 0) {
+            if (!field.canMakeMove(color.getOppositeColor())) {
+                gameEnds++;
+                leaves++;
+                return;
+            }
+
+            passes++;
+            run(field, color.getOppositeColor(), depth - 1);
+            return;
+        }
+
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            field.placeChip(square, color);
+            run(field, color.getOppositeColor(), depth - 1);
+            field.undoMove(1);
+        }
+    }
+
+    /**
+     * Перебор на поле больше 8x8: ходы перечисляются списком клеток.
+     */
+    private void runWide(GameField field, Color color, int depth) {
+        nodes++;
+        if (depth == 0) {
+            leaves++;
+            return;
+        }
+
+        int[] squares = squaresBuffer[depth];
+        int count = field.getAvailableSquares(color, squares);
+        if (count == 0) {
+            if (!field.canMakeMove(color.getOppositeColor())) {
+                gameEnds++;
+                leaves++;
+                return;
+            }
+
+            passes++;
+            runWide(field, color.getOppositeColor(), depth - 1);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            field.placeChip(squares[i], color);
+            runWide(field, color.getOppositeColor(), depth - 1);
+            field.undoMove(1);
+        }
+    }
+
+    /**
+     * Параллельный перебор: ходы из корня распределяются между потоками, каждый работает на своей копии поля.
+     */
+    public static Perft runParallel(GameField field, Color color, int depth, int threadsCount) {
+        Perft result = new Perft();
+        int[] squares = new int[field.getGeometry().getSquareIndexBound()];
+        int count = field.getAvailableSquares(color, squares);
+        if (threadsCount <= 1 || depth == 0 || count == 0) {
+            result.run(field, color, depth);
+            return result;
+        }
+
+        result.nodes++;
+        ExecutorService pool = Executors.newFixedThreadPool(threadsCount);
+        try {
+            List<Future<Perft>> tasks = new ArrayList<Future<Perft>>();
+            for (int i = 0; i < count; i++) {
+                int square = squares[i];
+                GameField fieldCopy = field.getDeepCopy();
+                tasks.add(pool.submit(() -> {
+                    Perft subtree = new Perft();
+                    fieldCopy.placeChip(square, color);
+                    subtree.run(fieldCopy, color.getOppositeColor(), depth - 1);
+                    return subtree;
+                }));
+            }
+
+            for (var task : tasks) {
+                result.add(task.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Ошибка в потоке perft", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        return result;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Использование: java Perft глубина [потоки] [размер поля | позиция X|O]");
+            return;
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        int threadsCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        // размер поля задается явно или определяется по длине строки позиции
+        int size = BoardGeometry.DEFAULT_SIZE;
+        if (args.length > 3) {
+            size = (int) Math.round(Math.sqrt(args[2].length()));
+        } else if (args.length > 2) {
+            size = Integer.parseInt(args[2]);
+        }
+        if (!BoardGeometry.isSupportedSize(size)) {
+            System.out.println("Неподдерживаемый размер поля.");
+            return;
+        }
+
+        GameField field = new GameField(size);
+        Color color = Color.BLACK;
+        boolean isStartPosition = size == BoardGeometry.DEFAULT_SIZE;
+        if (args.length > 3) {
+            if (!field.setupFromString(args[2])) {
+                System.out.println("Некорректная позиция.");
+                return;
+            }
+            color = args[3].equals("O") ? Color.WHITE : Color.BLACK;
+            isStartPosition = false;
+        } else {
+            field.setupStartState();
+        }
+
+        for (int currentDepth = 1; currentDepth <= depth; currentDepth++) {
+            long startNanos = System.nanoTime();
+            Perft result = runParallel(field, color, currentDepth, threadsCount);
+            long elapsedNanos = Long.max(1, System.nanoTime() - startNanos);
+
+            String check = "";
+            if (isStartPosition && currentDepth < START_POSITION_LEAVES.length) {
+                check = result.leaves == START_POSITION_LEAVES[currentDepth] ? " OK" : " ОШИБКА: ожидалось " + START_POSITION_LEAVES[currentDepth];
+            }
+
+            System.out.printf("perft(%d): листьев %d, узлов %d, пропусков %d, окончаний %d, %d мс, %d узлов/с%s\n",
+                    currentDepth, result.leaves, result.nodes, result.passes, result.gameEnds,
+                    elapsedNanos / 1_000_000, result.nodes * 1_000_000_000L / elapsedNanos, check);
+        }
+    }
+}
@@ -20,6 +20,14 @@ public abstract class Player {
 
     public abstract boolean isRobot();
 
+    /**
+     * Сведения о последнем ходе для вывода игроку (например, статистика поиска робота).
+     * @return Строка отчета или null, если сообщать нечего.
+     */
+    public String getLastMoveReport() {
+        return null;
+    }
+
     public boolean canMakeMove(GameField field) {
         return field.canMakeMove(color);
     }
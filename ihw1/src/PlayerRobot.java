@@ -1,21 +1,64 @@
-public class PlayerRobot extends Player {
-    private boolean isHardLevel;
+public class PlayerRobot extends Player implements AutoCloseable {
+    private RobotLevel level;
+    private SearchEngine searchEngine;
+    private MctsEngine mctsEngine;
+    private MctsResult lastMctsResult;
+    private OpeningBook openingBook;
+    private Ponderer ponderer;
+    private SearchMetrics metrics;
+    private SearchResult lastSearchResult;
+    private boolean lastMoveFromBook;
+    private boolean lastMoveFromPonder;
 
-    public PlayerRobot(Color color, boolean isHardLevel) {
+    /*
+     * Буферы клеток для уровней EASY и HARD: ходы робота, ответы соперника и перевернутые фишки.
+     */
+    private final int[] movesBuffer = new int[BoardGeometry.MAX_SQUARES_COUNT];
+    private final int[] repliesBuffer = new int[BoardGeometry.MAX_SQUARES_COUNT];
+    private final int[] flipsBuffer = new int[BoardGeometry.MAX_SQUARES_COUNT];
+
+    public PlayerRobot(Color color, RobotLevel level) {
+        this(color, level, new SearchConfig());
+    }
+
+    public PlayerRobot(Color color, RobotLevel level, SearchConfig searchConfig) {
         super(color, "Робот");
-        this.isHardLevel = isHardLevel;
+        this.level = level;
+        if (level == RobotLevel.EXPERT) {
+            searchEngine = new SearchEngine(searchConfig);
+            openingBook = searchConfig.openingBook;
+            metrics = searchConfig.metrics;
+            if (searchConfig.ponder) {
+                ponderer = new Ponderer(searchEngine);
+            }
+        } else if (level == RobotLevel.MCTS) {
+            mctsEngine = new MctsEngine(searchConfig);
+        }
     }
 
     @Override
     public boolean makeNextMove(GameField field) {
-        Coords2D bestCoords;
-        if (isHardLevel) {
-            bestCoords = findBestCoordsHard(field, color);
+        if (level == RobotLevel.EXPERT) {
+            makeNextMoveExpert(field);
+            if (ponderer != null) {
+                ponderer.start(field, color.getOppositeColor());
+            }
+            return false;
+        }
+        if (level == RobotLevel.MCTS) {
+            lastMctsResult = mctsEngine.search(field, color);
+            field.placeChip(lastMctsResult.bestSquare, color);
+            return false;
+        }
+
+        int bestSquare;
+        if (level == RobotLevel.HARD) {
+            bestSquare = findBestSquareHard(field, color);
         } else {
-            bestCoords = findBestCoordsSimple(field, color);
+            bestSquare = findBestSquareSimple(field, color, movesBuffer);
         }
 
-        field.placeChip(bestCoords, color);
+        field.placeChip(bestSquare, color);
         return false;
     }
 
@@ -24,30 +67,152 @@ public class PlayerRobot extends Player {
         return true;
     }
 
-    private static Coords2D findBestCoordsHard(GameField field, Color playerColor) {
-        var availableCoords = field.getAvailableCoordsToPlaceChip(playerColor);
+    @Override
+    public String getLastMoveReport() {
+        if (lastMctsResult != null) {
+            return String.format("Симуляций %d, %d симуляций/с, потоков %d, узлов дерева %d (перенесено %d), время %d мс, доля побед %.1f%%.",
+                    lastMctsResult.playouts, lastMctsResult.getPlayoutsPerSecond(), lastMctsResult.threadsCount,
+                    lastMctsResult.treeNodes, lastMctsResult.reusedNodes, lastMctsResult.getTimeMillis(), lastMctsResult.winRate * 100);
+        }
+        if (lastMoveFromBook) {
+            return "Ход из книги дебютов.";
+        }
+        if (lastSearchResult == null) {
+            return null;
+        }
+
+        String ponderReport = "";
+        if (lastMoveFromPonder) {
+            ponderReport = String.format("Ход рассчитан на время соперника (угадано %d из %d). ",
+                    ponderer.getHits(), ponderer.getHits() + ponderer.getMisses());
+        }
+
+        if (lastSearchResult.exact) {
+            return ponderReport + String.format("Точный расчет: %d пустых клеток, итоговая разность %+d, узлов %d, время %d мс, %d узлов/с.",
+                    lastSearchResult.depth, lastSearchResult.score - Integer.signum(lastSearchResult.score) * SearchEngine.WIN_SCORE,
+                    lastSearchResult.nodes, lastSearchResult.getTimeMillis(), lastSearchResult.getNodesPerSecond());
+        }
+
+        String report = ponderReport + String.format("Глубина %d, узлов %d, время %d мс, %d узлов/с, отсечений на первом ходе %.1f%%.",
+                lastSearchResult.depth, lastSearchResult.nodes, lastSearchResult.getTimeMillis(), lastSearchResult.getNodesPerSecond(),
+                lastSearchResult.getFirstMoveCutoffPercent());
+
+        SearchStats stats = lastSearchResult.stats;
+        if (stats != null) {
+            report += String.format(" Оценок позиций %d, попаданий в таблицу %.1f%%, отсечений по стабильным фишкам %d, коэффициент ветвления %.2f. Вариант: %s.",
+                    stats.leafEvaluations, stats.getTableHitPercent(), stats.stabilityCutoffs, stats.getEffectiveBranchingFactor(),
+                    lastSearchResult.getPrincipalVariationString());
+        }
+
+        return report;
+    }
+
+    public SearchResult getLastSearchResult() {
+        return lastSearchResult;
+    }
+
+    /**
+     * Остановка размышления на время соперника, например, при завершении партии.
+     */
+    public void stopPondering() {
+        if (ponderer != null) {
+            ponderer.stop();
+        }
+    }
+
+    /**
+     * Освобождение потоков и памяти поиска по окончании игры.
+     */
+    @Override
+    public void close() {
+        if (ponderer != null) {
+            ponderer.close();
+        }
+        if (searchEngine != null) {
+            searchEngine.close();
+        }
+        if (mctsEngine != null) {
+            mctsEngine.close();
+        }
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Ход робота уровня EXPERT: из книги дебютов, из результатов размышления или поиском.
+     */
+    private void makeNextMoveExpert(GameField field) {
+        lastMoveFromPonder = false;
+        int bookSquare = findBookSquare(field);
+        lastMoveFromBook = bookSquare >= 0;
+        if (lastMoveFromBook) {
+            stopPondering();
+            lastSearchResult = null;
+            field.placeChip(bookSquare, color);
+            return;
+        }
+
+        if (ponderer != null) {
+            ponderer.stop();
+            SearchResult reply = ponderer.getReply(field, color);
+            if (reply != null && field.canPlaceChip(reply.bestSquare, color)) {
+                lastMoveFromPonder = true;
+                lastSearchResult = reply;
+                // поиск на время соперника не пишет статистику, пока неизвестно, понадобится ли результат
+                if (metrics != null) {
+                    metrics.record(reply);
+                }
+                field.placeChip(reply.bestSquare, color);
+                return;
+            }
+        }
+
+        lastSearchResult = searchEngine.search(field, color);
+        field.placeChip(lastSearchResult.bestSquare, color);
+    }
+
+    /**
+     * @return Ход из книги дебютов, если он есть и допустим, иначе -1.
+     */
+    private int findBookSquare(GameField field) {
+        if (openingBook == null || field.getGeometry() != BoardGeometry.getDefault()) {
+            return -1;
+        }
+
+        int square = openingBook.findMove(field.getChipsMask(color), field.getChipsMask(color.getOppositeColor()));
+        if (square < 0 || !field.canPlaceChip(square, color)) {
+            return -1;
+        }
+
+        return square;
+    }
+
+    private int findBestSquareHard(GameField field, Color playerColor) {
+        int[] squares = movesBuffer;
+        int count = field.getAvailableSquares(playerColor, squares);
 
         float bestEvaluation = -1000000;
-        int indexOfBest = -1;
-        for (int i = 0; i < availableCoords.size(); i++) {
-            float evaluation = evaluateMoveHard(field, availableCoords.get(i), playerColor);
+        int bestSquare = -1;
+        for (int i = 0; i < count; i++) {
+            float evaluation = evaluateMoveHard(field, squares[i], playerColor);
             if (evaluation > bestEvaluation) {
                 bestEvaluation = evaluation;
-                indexOfBest = i;
+                bestSquare = squares[i];
             }
         }
 
-        return availableCoords.get(indexOfBest);
+        return bestSquare;
     }
 
-    private static float evaluateMoveHard(GameField field, Coords2D coords, Color playerColor) {
-        float selfEvaluation = evaluateMoveSimple(field, coords, playerColor);
+    private float evaluateMoveHard(GameField field, int square, Color playerColor) {
+        float selfEvaluation = evaluateMoveSimple(field, square, playerColor);
         float enemyBestEvaluation = 0;
 
         // very smart hack
-        field.placeChip(coords, playerColor);
+        field.placeChip(square, playerColor);
         if (field.canMakeMove(playerColor.getOppositeColor())) {
-            enemyBestEvaluation = evaluateMoveSimple(field, findBestCoordsSimple(field, playerColor.getOppositeColor()), playerColor.getOppositeColor());
+            enemyBestEvaluation = evaluateMoveSimple(field, findBestSquareSimple(field, playerColor.getOppositeColor(), repliesBuffer),
+                    playerColor.getOppositeColor());
         }
         field.undoMove(1);
         // ---------------
@@ -55,56 +220,41 @@ public class PlayerRobot extends Player {
         return selfEvaluation - enemyBestEvaluation;
     }
 
-    private static Coords2D findBestCoordsSimple(GameField field, Color playerColor) {
-        var availableCoords = field.getAvailableCoordsToPlaceChip(playerColor);
+    private int findBestSquareSimple(GameField field, Color playerColor, int[] squares) {
+        int count = field.getAvailableSquares(playerColor, squares);
 
         float bestEvaluation = -1;
-        int indexOfBest = -1;
-        for (int i = 0; i < availableCoords.size(); i++) {
-            float evaluation = evaluateMoveSimple(field, availableCoords.get(i), playerColor);
+        int bestSquare = -1;
+        for (int i = 0; i < count; i++) {
+            float evaluation = evaluateMoveSimple(field, squares[i], playerColor);
             if (evaluation > bestEvaluation) {
                 bestEvaluation = evaluation;
-                indexOfBest = i;
+                bestSquare = squares[i];
             }
         }
 
-        return availableCoords.get(indexOfBest);
+        return bestSquare;
     }
 
-    private static float evaluateMoveSimple(GameField field, Coords2D coords, Color playerColor) {
+    private float evaluateMoveSimple(GameField field, int square, Color playerColor) {
         float result = 0;
+        BoardGeometry geometry = field.getGeometry();
 
-        if (GameField.isCorner(coords)) {
+        if (geometry.isCorner(square)) {
             result += 0.8;
-        } else if (GameField.isBorder(coords)) {
+        } else if (geometry.isBorder(square)) {
             result += 0.4;
         }
 
-        var directionsToSwitch = field.getClosingDirections(coords, playerColor);
-        for (Coords2D dir : directionsToSwitch) {
-            Coords2D processingCoords;
-            Cell processingCell;
-            int factor = 1;
-            while (true) {
-                processingCoords = Coords2D.sum(coords, Coords2D.scale(dir, factor));
-                if (!GameField.isInField(processingCoords)) {
-                    break;
-                }
-
-                processingCell = field.getCell(processingCoords);
-                if (processingCell.isEmpty()) {
-                    break;
-                } else if (processingCell.getChipColor().isEqualColor(playerColor)) {
-                    break;
-                } else {
-                    if (GameField.isBorder(processingCoords)) {
-                        result += 2;
-                    } else {
-                        result += 1;
-                    }
-                }
-                factor++;
+        // перевернутая фишка на краю поля стоит 2, остальные - 1
+        if (geometry.isWide()) {
+            int count = field.getFlippedSquares(square, playerColor, flipsBuffer);
+            for (int i = 0; i < count; i++) {
+                result += geometry.isBorder(flipsBuffer[i]) ? 2 : 1;
             }
+        } else {
+            long flips = field.getFlipsMask(square, playerColor);
+            result += 2 * Long.bitCount(flips & geometry.getBordersMask()) + Long.bitCount(flips & ~geometry.getBordersMask());
         }
 
         return result;
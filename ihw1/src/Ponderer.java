@@ -0,0 +1,151 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Размышление робота на время соперника: после своего хода робот в фоновом потоке перебирает ответы
+ * соперника (сначала самый вероятный - ход из таблицы транспозиций, затем по MoveOrderer) и для каждого
+ * заранее ищет свой ход. Результаты сохраняются в кэше ответов по хешу позиции, таблица транспозиций
+ * общая с основным поиском. Когда соперник сходил, размышление прерывается (stop), и если его ход
+ * был рассмотрен, робот берет готовый результат из кэша. Поиски на время соперника не записываются в
+ * SearchConfig.metrics: в статистику попадает только результат, который робот действительно сыграл.
+ */
+public class Ponderer implements AutoCloseable {
+    private final SearchEngine searchEngine;
+    private final MoveOrderer moveOrderer = new MoveOrderer();
+    private final int[] squares = new int[MoveOrderer.MAX_MOVES];
+    private final ExecutorService executor;
+
+    /**
+     * Результаты поиска по ключу позиции (хеш поля вместе с ключом стороны, которая ходит).
+     * Заполняется фоновым потоком, читается только после stop.
+     */
+    private final Map<Long, SearchResult> replies = new HashMap<Long, SearchResult>();
+
+    private Future<?> task;
+    private volatile boolean cancelled;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param searchEngine Поиск робота. Пока идет размышление, его нельзя использовать из другого потока.
+     */
+    public Ponderer(SearchEngine searchEngine) {
+        this.searchEngine = searchEngine;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ponder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запуск размышления над ответами соперника. Предыдущее размышление прерывается.
+     * @param field Поле после хода робота, копируется.
+     * @param opponentColor Цвет соперника, который ходит следующим.
+     */
+    public void start(GameField field, Color opponentColor) {
+        stop();
+        replies.clear();
+        cancelled = false;
+
+        GameField fieldCopy = field.getDeepCopy();
+        task = executor.submit(() -> ponder(fieldCopy, opponentColor));
+    }
+
+    /**
+     * Прерывание размышления и ожидание завершения фонового потока.
+     */
+    public void stop() {
+        if (task == null) {
+            return;
+        }
+
+        cancelled = true;
+        while (true) {
+            // повторная остановка на случай, если поиск начался уже после предыдущей
+            searchEngine.stop();
+            try {
+                task.get(1, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Ошибка в потоке размышления", e);
+            }
+        }
+        task = null;
+    }
+
+    /**
+     * Прерывание размышления и остановка фонового потока. После закрытия размышление недоступно.
+     */
+    @Override
+    public void close() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Готовый результат для позиции. Вызывается после stop.
+     * @return Результат поиска или null, если позиция не была рассмотрена.
+     */
+    public SearchResult getReply(GameField field, Color color) {
+        SearchResult result = replies.get(field.getHash() ^ Zobrist.getSideKey(color));
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return result;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /* ===== private ===== */
+
+    private void ponder(GameField field, Color opponentColor) {
+        // ответы перебираются по маскам ходов, поэтому только на полях до 8x8
+        if (field.getGeometry().isWide()) {
+            return;
+        }
+
+        Color robotColor = opponentColor.getOppositeColor();
+        long opponent = field.getChipsMask(opponentColor);
+        long robot = field.getChipsMask(robotColor);
+        long moves = field.getAvailableMovesMask(opponentColor);
+        if (moves == 0) {
+            return;
+        }
+        moveOrderer.setValidMask(field.getGeometry().getValidMask());
+
+        long entry = searchEngine.getTranspositionTable().probe(field.getHash() ^ Zobrist.getSideKey(opponentColor));
+        int predictedSquare = entry != 0 ? TranspositionTable.getBestMove(entry) : TranspositionTable.NO_MOVE;
+        int count = moveOrderer.orderMoves(opponent, robot, moves, predictedSquare, 0,
+                MoveOrderer.MOBILITY_ORDERING_DEPTH, opponentColor, squares);
+
+        for (int i = 0; i < count && !cancelled; i++) {
+            field.placeChip(squares[i], opponentColor);
+            if (field.canMakeMove(robotColor)) {
+                SearchResult result = searchEngine.search(field, robotColor, false);
+                if (!cancelled && (result.depth > 0 || result.exact)) {
+                    replies.put(field.getHash() ^ Zobrist.getSideKey(robotColor), result);
+                }
+            }
+            field.undoMove(1);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Пакетный анализ позиций на пуле потоков: для каждой позиции находит лучший ход, оценку, глубину и главный вариант.
+ * Позиция задается строкой расстановки из 64 символов (см. GameField.setupFromString), пробелом и цветом X|O,
+ * либо последовательностью ходов из начальной позиции ("f5d6c3" или "f5 d6 c3", пропуск - "--").
+ * Очереди заданий и результатов ограничены: submit ждет, пока потоки не освободят место, а потоки ждут,
+ * пока результаты не будут забраны. У каждого потока свое поле и свой поиск, оценка позиций (SearchConfig.evaluator) общая.
+ * Результаты выдаются в порядке готовности, порядок во входном потоке - AnalysisResult.index.
+ * Запуск: java PositionAnalyzer [файл позиций или -] [потоков] [мс на позицию].
+ */
+public class PositionAnalyzer implements AutoCloseable {
+    private static final AnalysisResult STOP_TASK = new AnalysisResult();
+
+    private final SearchConfig searchConfig;
+    private final BlockingQueue<AnalysisResult> tasks;
+    private final BlockingQueue<AnalysisResult> results;
+    private final Thread[] workers;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    /**
+     * @param searchConfig Настройки поиска. Каждый поток ищет в одном потоке с отдельной таблицей транспозиций.
+     * @param queueCapacity Размер очереди заданий и очереди результатов.
+     */
+    public PositionAnalyzer(SearchConfig searchConfig, int threadsCount, int queueCapacity) {
+        this.searchConfig = searchConfig.getCopy();
+        this.searchConfig.threadsCount = 1;
+        this.searchConfig.ponder = false;
+        this.tasks = new ArrayBlockingQueue<AnalysisResult>(queueCapacity);
+        this.results = new ArrayBlockingQueue<AnalysisResult>(queueCapacity);
+
+        workers = new Thread[Integer.max(1, threadsCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::runWorker, "analyzer-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Добавление позиции в очередь. Ждет, если очередь заполнена. Можно вызывать из нескольких потоков.
+     * @return Порядковый номер позиции.
+     */
+    public long submit(String position) throws InterruptedException {
+        AnalysisResult task = new AnalysisResult();
+        task.index = submittedCount.getAndIncrement();
+        task.position = position;
+        tasks.put(task);
+        return task.index;
+    }
+
+    /**
+     * Получение следующего готового результата. Ждет, если готовых результатов нет.
+     */
+    public AnalysisResult take() throws InterruptedException {
+        return results.take();
+    }
+
+    /**
+     * @return Готовый результат или null, если за время timeout он не появился.
+     */
+    public AnalysisResult poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return results.poll(timeout, unit);
+    }
+
+    /**
+     * Анализ потока позиций: позиции подаются отдельным потоком, результаты передаются consumer в потоке вызова.
+     * @return Количество проанализированных позиций.
+     */
+    public long analyze(Iterator<String> positions, Consumer<AnalysisResult> consumer) throws InterruptedException {
+        long[] feedCount = {-1};
+        Throwable[] feedError = {null};
+        Thread feeder = new Thread(() -> {
+            long count = 0;
+            try {
+                while (positions.hasNext()) {
+                    submit(positions.next());
+                    count++;
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                feedError[0] = e;
+            }
+            synchronized (feedCount) {
+                feedCount[0] = count;
+            }
+        }, "analyzer-feeder");
+        feeder.start();
+
+        long receivedCount = 0;
+        while (true) {
+            synchronized (feedCount) {
+                if (feedCount[0] == receivedCount) {
+                    break;
+                }
+            }
+
+            AnalysisResult result = results.poll(100, TimeUnit.MILLISECONDS);
+            if (result != null) {
+                consumer.accept(result);
+                receivedCount++;
+            }
+        }
+
+        feeder.join();
+        if (feedError[0] != null) {
+            throw new IllegalStateException("Ошибка при чтении позиций", feedError[0]);
+        }
+
+        return receivedCount;
+    }
+
+    /**
+     * Остановка потоков после обработки уже добавленных позиций.
+     * При прерывании ожидание прекращается, признак прерывания потока сохраняется.
+     */
+    @Override
+    public void close() {
+        try {
+            for (int i = 0; i < workers.length; i++) {
+                tasks.put(STOP_TASK);
+            }
+            for (Thread worker : workers) {
+                // результаты, которые никто не забрал, не должны держать потоки
+                while (worker.isAlive()) {
+                    results.clear();
+                    worker.join(10);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Разбор позиции.
+     * @return Цвет игрока, который ходит (с учетом пропуска хода), null - если партия завершена.
+     * @throws IllegalArgumentException Если строка позиции имеет неверный формат или содержит недопустимый ход.
+     */
+    public static Color setupPosition(String position, GameField field) {
+        String text = position.trim();
+        Color color;
+
+        if (text.length() == BitBoard.SQUARES_COUNT + 2 && text.charAt(BitBoard.SQUARES_COUNT) == ' ') {
+            if (!field.setupFromString(text.substring(0, BitBoard.SQUARES_COUNT))) {
+                throw new IllegalArgumentException("неверная расстановка фишек");
+            }
+
+            char side = text.charAt(BitBoard.SQUARES_COUNT + 1);
+            if (side != 'X' && side != 'O') {
+                throw new IllegalArgumentException("неверный цвет: " + side);
+            }
+            color = side == 'X' ? Color.BLACK : Color.WHITE;
+        } else {
+            String moves = text.replace(" ", "");
+            if (moves.length() % 2 != 0) {
+                throw new IllegalArgumentException("неверная последовательность ходов");
+            }
+
+            field.setupStartState();
+            color = Color.BLACK;
+            for (int i = 0; i < moves.length(); i += 2) {
+                String move = moves.substring(i, i + 2);
+                if (move.equals("--")) {
+                    if (field.canMakeMove(color)) {
+                        throw new IllegalArgumentException("недопустимый пропуск хода");
+                    }
+                    color = color.getOppositeColor();
+                    continue;
+                }
+
+                // пропуск хода можно не указывать
+                if (!field.canMakeMove(color)) {
+                    color = color.getOppositeColor();
+                }
+
+                Coords2D coords = GameField.stringToCoords(move.toLowerCase());
+                if (coords == null || !field.isInField(coords) || !field.canPlaceChip(coords, color)) {
+                    throw new IllegalArgumentException("недопустимый ход " + move);
+                }
+                field.placeChip(coords, color);
+                color = color.getOppositeColor();
+            }
+        }
+
+        if (!field.canMakeMove(color)) {
+            if (!field.canMakeMove(color.getOppositeColor())) {
+                return null;
+            }
+            color = color.getOppositeColor();
+        }
+
+        return color;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String path = args.length > 0 ? args[0] : "-";
+        int threadsCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        SearchConfig searchConfig = new SearchConfig();
+        searchConfig.timeLimitMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        searchConfig.transpositionTableSizeMb = 16;
+        searchConfig.evaluator = PatternEvaluator.loadOrSimple(PatternEvaluator.DEFAULT_WEIGHTS_PATH);
+
+        long startNanos = System.nanoTime();
+        long count;
+        try (var reader = new BufferedReader(path.equals("-") ? new InputStreamReader(System.in) : new FileReader(path));
+             var analyzer = new PositionAnalyzer(searchConfig, threadsCount, 4 * threadsCount)) {
+            Iterator<String> positions = reader.lines().filter(line -> !line.isBlank()).iterator();
+            count = analyzer.analyze(positions, System.out::println);
+        }
+
+        System.err.printf("Позиций: %d, время %d мс\n", count, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /* ===== private ===== */
+
+    private void runWorker() {
+        GameField field = new GameField();
+
+        try (SearchEngine searchEngine = new SearchEngine(searchConfig)) {
+            while (true) {
+                AnalysisResult task = tasks.take();
+                if (task == STOP_TASK) {
+                    return;
+                }
+
+                try {
+                    task.color = setupPosition(task.position, field);
+                    if (task.color != null) {
+                        task.searchResult = searchEngine.search(field, task.color);
+                    }
+                } catch (IllegalArgumentException e) {
+                    task.error = e.getMessage();
+                } catch (RuntimeException e) {
+                    // результат выдается всегда, иначе analyze будет ждать его бесконечно
+                    task.error = e.toString();
+                }
+
+                results.put(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
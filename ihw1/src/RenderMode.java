@@ -0,0 +1,15 @@
+/**
+ * Способ вывода поля (см. FieldRenderer).
+ */
+public enum RenderMode {
+    /**
+     * Каждый кадр выводится целиком обычным текстом без управляющих последовательностей - для журналов и перенаправленного вывода.
+     */
+    PLAIN,
+
+    /**
+     * Первый кадр выводится целиком в начале экрана, следующие - только изменившимися клетками
+     * с перемещением курсора управляющими последовательностями ANSI.
+     */
+    ANSI;
+}
@@ -0,0 +1,6 @@
+public enum RobotLevel {
+    EASY,
+    HARD,
+    EXPERT,
+    MCTS;
+}
@@ -0,0 +1,80 @@
+/**
+ * Настройки поиска робота уровня EXPERT. Робот уровня MCTS (см. MctsEngine) использует ограничения времени и узлов
+ * (узел - симуляция), количество потоков и mctsTreeSizeMb.
+ */
+public class SearchConfig {
+    /**
+     * Ограничение времени на один ход в миллисекундах. 0 - без ограничения.
+     */
+    public long timeLimitMillis = 1000;
+
+    /**
+     * Ограничение количества узлов на один ход. 0 - без ограничения.
+     */
+    public long nodeLimit = 0;
+
+    public int maxDepth = 60;
+
+    /**
+     * Оценка позиций. Один экземпляр используется всеми потоками и всеми роботами с этими настройками.
+     */
+    public Evaluator evaluator = new SimpleEvaluator();
+
+    public int transpositionTableSizeMb = 16;
+
+    /**
+     * Память под дерево MCTS в мегабайтах, включая запасную копию для переноса дерева между ходами.
+     */
+    public int mctsTreeSizeMb = 64;
+
+    /**
+     * Книга дебютов, в которой ход ищется до запуска поиска. null - без книги.
+     */
+    public OpeningBook openingBook = null;
+
+    /**
+     * Размышление на время соперника (см. Ponderer). Имеет смысл, когда соперник - человек.
+     */
+    public boolean ponder = false;
+
+    /**
+     * Сбор подробной статистики каждого хода (SearchResult.stats) и счетчиков таблицы транспозиций.
+     * При false считаются только узлы и отсечения.
+     */
+    public boolean instrumentation = true;
+
+    /**
+     * Показатели, в которые записывается каждый поиск. null - не записывать.
+     */
+    public SearchMetrics metrics = null;
+
+    /**
+     * Количество пустых клеток, начиная с которого ход ищется точным перебором до конца партии.
+     */
+    public int endgameEmptiesThreshold = 16;
+
+    /**
+     * Количество потоков поиска. При значении 1 результат поиска с ограничением по узлам детерминирован.
+     */
+    public int threadsCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Копия настроек. Оценка позиций и книга дебютов не копируются, а используются совместно.
+     */
+    public SearchConfig getCopy() {
+        SearchConfig copy = new SearchConfig();
+        copy.timeLimitMillis = timeLimitMillis;
+        copy.nodeLimit = nodeLimit;
+        copy.maxDepth = maxDepth;
+        copy.evaluator = evaluator;
+        copy.transpositionTableSizeMb = transpositionTableSizeMb;
+        copy.mctsTreeSizeMb = mctsTreeSizeMb;
+        copy.openingBook = openingBook;
+        copy.ponder = ponder;
+        copy.instrumentation = instrumentation;
+        copy.metrics = metrics;
+        copy.endgameEmptiesThreshold = endgameEmptiesThreshold;
+        copy.threadsCount = threadsCount;
+        return copy;
+    }
+}
@@ -0,0 +1,598 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Поиск хода перебором negamax с альфа-бета отсечением и итеративным углублением.
+ * Поиск останавливается по ограничению времени или количества узлов из SearchConfig
+ * и возвращает лучший ход последней завершенной итерации.
+ * При SearchConfig.threadsCount больше 1 поиск ведется параллельно по схеме Lazy SMP; потоки останавливает close.
+ * Оценка из SearchConfig.evaluator и точный расчет окончаний рассчитаны на поле 8x8: на полях до 8x8 другого размера
+ * позиции оценивает SimpleEvaluator с масками этого поля, на полях больше 8x8 - SimpleEvaluator.evaluate по полю,
+ * а окончания считаются обычным поиском.
+ * На полях до 8x8 узел с оставшейся глубиной от STABILITY_MIN_DEPTH отсекается, если стабильные фишки (см. Stability)
+ * одной из сторон уже решают исход партии, а окно лежит по другую сторону от этого исхода.
+ */
+public class SearchEngine implements AutoCloseable {
+    public static final int INFINITY = 1_000_000;
+
+    /**
+     * Оценка завершенной партии: знак победителя, умноженный на WIN_SCORE, плюс разность фишек.
+     */
+    public static final int WIN_SCORE = 100_000;
+
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /**
+     * Отсечение по стабильным фишкам проверяется начиная с этой глубины: у листьев проверка дороже поддерева.
+     */
+    private static final int STABILITY_MIN_DEPTH = 2;
+
+    /**
+     * Размер кеша количеств стабильных фишек (степень двойки).
+     */
+    private static final int STABILITY_CACHE_SIZE = 1 << 12;
+
+    private final SearchConfig config;
+    private final TranspositionTable transpositionTable;
+
+    /*
+     * Вспомогательные потоки (Lazy SMP): каждый ищет на своей копии поля с общей таблицей транспозиций,
+     * результат берется из основного потока.
+     */
+    private final SearchEngine[] helpers;
+    private final ExecutorService helpersPool;
+
+    private final EndgameSolver endgameSolver;
+    private final MoveOrderer moveOrderer = new MoveOrderer();
+    private final int[][] movesBuffer = new int[MoveOrderer.MAX_PLY][MoveOrderer.MAX_MOVES];
+
+    /*
+     * Ходы корня в порядке проверки и их оценки на последней итерации:
+     * следующая итерация проверяет ходы в порядке убывания этих оценок.
+     */
+    private final int[] rootSquares = new int[MoveOrderer.MAX_MOVES];
+    private final int[] rootScores = new int[MoveOrderer.MAX_MOVES];
+    private int rootMovesCount;
+
+    /*
+     * Подробная статистика текущего поиска, null - если отключена или это вспомогательный поток.
+     */
+    private final SearchStats stats;
+
+    /*
+     * Оценка позиций и вид поля текущего поиска: на поле больше 8x8 ходы перечисляются списком клеток.
+     */
+    private Evaluator evaluator;
+    private boolean wide;
+    private long validMask;
+    private int squaresCount;
+
+    /**
+     * Поле последнего поиска: при смене размера таблица транспозиций очищается, ключи позиций в ней не учитывают размер.
+     */
+    private BoardGeometry lastGeometry = BoardGeometry.getDefault();
+
+    private long nodes;
+    private long deadlineNanos;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private int lastRootScore;
+
+    /*
+     * Кеш количеств стабильных фишек по ключу позиции: узлы верхних уровней посещаются на каждой итерации углубления.
+     */
+    private final long[] stabilityKeys = new long[STABILITY_CACHE_SIZE];
+    private final int[] stabilityCounts = new int[STABILITY_CACHE_SIZE];
+
+    public SearchEngine(SearchConfig config) {
+        this.config = config;
+        this.transpositionTable = new TranspositionTable(config.transpositionTableSizeMb, config.instrumentation);
+        this.endgameSolver = new EndgameSolver();
+        this.stats = config.instrumentation ? new SearchStats() : null;
+
+        int helpersCount = Integer.max(0, config.threadsCount - 1);
+        helpers = new SearchEngine[helpersCount];
+        for (int i = 0; i < helpersCount; i++) {
+            helpers[i] = new SearchEngine(config, transpositionTable);
+        }
+
+        if (helpersCount > 0) {
+            helpersPool = Executors.newFixedThreadPool(helpersCount, runnable -> {
+                Thread thread = new Thread(runnable, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            helpersPool = null;
+        }
+    }
+
+    /**
+     * Поиск лучшего хода. Поле после поиска остается в исходном состоянии.
+     * @param field Игровое поле.
+     * @param color Цвет игрока, который ходит.
+     * @return Результат поиска. Если ходов нет, bestSquare равен -1.
+     */
+    public SearchResult search(GameField field, Color color) {
+        return search(field, color, true);
+    }
+
+    /**
+     * Поиск лучшего хода.
+     * @param recordMetrics false - результат не записывается в SearchConfig.metrics, например, при поиске на время
+     * соперника, результат которого может не понадобиться.
+     */
+    public SearchResult search(GameField field, Color color, boolean recordMetrics) {
+        SearchResult result = new SearchResult();
+        long startNanos = System.nanoTime();
+
+        stopRequested = false;
+        transpositionTable.newSearch();
+        if (lastGeometry != field.getGeometry()) {
+            lastGeometry = field.getGeometry();
+            transpositionTable.clear();
+        }
+        long deadline = config.timeLimitMillis > 0 ? startNanos + config.timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+
+        if (stats != null) {
+            stats.clear();
+        }
+
+        result.geometry = field.getGeometry();
+        if (!field.canMakeMove(color)) {
+            return finishSearch(result, startNanos, recordMetrics);
+        }
+
+        long endgameNodes = 0;
+        if (!field.getGeometry().isWide() && field.getEmptyCount() <= config.endgameEmptiesThreshold) {
+            // на точный перебор отводится половина ограничений, при неудаче остаток уходит на обычный поиск
+            long endgameDeadline = deadline == Long.MAX_VALUE ? deadline : startNanos + (deadline - startNanos) / 2;
+            SearchResult endgameResult = endgameSolver.solve(field, color, endgameDeadline, config.nodeLimit / 2);
+            if (!endgameSolver.isAborted()) {
+                endgameResult.score = Integer.signum(endgameResult.score) * WIN_SCORE + endgameResult.score;
+                endgameResult.principalVariation = new int[]{endgameResult.bestSquare};
+                endgameResult.geometry = field.getGeometry();
+                return finishSearch(endgameResult, startNanos, recordMetrics);
+            }
+            endgameNodes = endgameResult.nodes;
+        }
+
+        var helperTasks = startHelpers(field, color, deadline);
+        iterativeDeepening(field, color, 1, deadline, result);
+        stopHelpers(helperTasks, result);
+        result.nodes += endgameNodes;
+        result.principalVariation = getPrincipalVariation(field, color, result.bestSquare, result.depth);
+
+        return finishSearch(result, startNanos, recordMetrics);
+    }
+
+    /**
+     * Прерывание текущего поиска из другого потока: search вернет результат последней завершенной итерации.
+     * Вызов до начала поиска не действует, поиск сбрасывает флаг остановки.
+     */
+    public void stop() {
+        stopRequested = true;
+        if (endgameSolver != null) {
+            endgameSolver.stop();
+        }
+    }
+
+    /**
+     * Остановка вспомогательных потоков. После закрытия поиск недоступен.
+     */
+    @Override
+    public void close() {
+        if (helpersPool != null) {
+            helpersPool.shutdownNow();
+        }
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Оценка завершенной партии с точки зрения игрока color.
+     */
+    public static int evaluateFinal(GameField field, Color color) {
+        int discs = field.getChipsCount(color) - field.getChipsCount(color.getOppositeColor());
+        return Integer.signum(discs) * WIN_SCORE + discs;
+    }
+
+    /* ===== private ===== */
+
+    private SearchEngine(SearchConfig config, TranspositionTable sharedTable) {
+        this.config = config;
+        this.transpositionTable = sharedTable;
+        this.helpers = new SearchEngine[0];
+        this.helpersPool = null;
+        this.endgameSolver = null;
+        this.stats = null;
+    }
+
+    /**
+     * Время поиска, копия статистики и запись в SearchConfig.metrics.
+     */
+    private SearchResult finishSearch(SearchResult result, long startNanos, boolean recordMetrics) {
+        result.timeNanos = System.nanoTime() - startNanos;
+        if (stats != null) {
+            result.stats = stats.getCopy();
+        }
+        if (recordMetrics && config.metrics != null) {
+            config.metrics.record(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Поиск с итеративным углублением, начиная с глубины firstDepth.
+     * @param result Результат последней завершенной итерации, количество узлов и статистика отсечений.
+     */
+    private void iterativeDeepening(GameField field, Color color, int firstDepth, long deadline, SearchResult result) {
+        long startNanos = System.nanoTime();
+        nodes = 0;
+        aborted = false;
+        deadlineNanos = deadline;
+        moveOrderer.newSearch();
+        moveOrderer.resetCounters();
+
+        BoardGeometry geometry = field.getGeometry();
+        wide = geometry.isWide();
+        if (wide) {
+            evaluator = null;
+            rootMovesCount = field.getAvailableSquares(color, rootSquares);
+            moveOrderer.orderSquares(rootSquares, rootMovesCount, TranspositionTable.NO_MOVE, 0, color);
+        } else {
+            evaluator = geometry == BoardGeometry.getDefault() ? config.evaluator : SimpleEvaluator.of(geometry);
+            validMask = geometry.getValidMask();
+            squaresCount = Long.bitCount(validMask);
+            moveOrderer.setValidMask(validMask);
+            rootMovesCount = moveOrderer.orderMoves(field.getChipsMask(color), field.getChipsMask(color.getOppositeColor()),
+                    field.getAvailableMovesMask(color), TranspositionTable.NO_MOVE, 0, MoveOrderer.MOBILITY_ORDERING_DEPTH,
+                    color, rootSquares);
+        }
+        result.bestSquare = rootSquares[0];
+
+        int maxDepth = Integer.min(config.maxDepth, field.getEmptyCount());
+        for (int depth = Integer.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int bestSquare = searchRoot(field, color, depth);
+            if (aborted) {
+                break;
+            }
+
+            result.bestSquare = bestSquare;
+            result.score = lastRootScore;
+            result.depth = depth;
+            if (stats != null) {
+                stats.addIteration(System.nanoTime() - startNanos, nodes);
+            }
+        }
+
+        result.nodes = nodes;
+        result.cutoffs = moveOrderer.getCutoffs();
+        result.firstMoveCutoffs = moveOrderer.getFirstMoveCutoffs();
+    }
+
+    /**
+     * Восстановление главного варианта по лучшим ходам из таблицы транспозиций.
+     * @param maxLength Наибольшее количество ходов без учета пропусков.
+     */
+    private int[] getPrincipalVariation(GameField field, Color color, int firstSquare, int maxLength) {
+        int[] result = new int[2 * Integer.max(1, maxLength)];
+        int length = 0;
+        int movesCount = 0;
+
+        int square = firstSquare;
+        while (true) {
+            field.placeChip(square, color);
+            result[length++] = square;
+            movesCount++;
+            color = color.getOppositeColor();
+
+            if (movesCount >= maxLength || length >= result.length - 1) {
+                break;
+            }
+            if (!field.canMakeMove(color)) {
+                if (!field.canMakeMove(color.getOppositeColor())) {
+                    break;
+                }
+                result[length++] = GameRecord.PASS;
+                color = color.getOppositeColor();
+            }
+
+            long entry = transpositionTable.probe(field.getHash() ^ Zobrist.getSideKey(color));
+            square = entry != 0 ? TranspositionTable.getBestMove(entry) : TranspositionTable.NO_MOVE;
+            if (square == TranspositionTable.NO_MOVE || !field.canPlaceChip(square, color)) {
+                break;
+            }
+        }
+
+        field.undoMove(movesCount);
+        if (length > 0 && result[length - 1] == GameRecord.PASS) {
+            length--;
+        }
+
+        return Arrays.copyOf(result, length);
+    }
+
+    private List<Future<SearchResult>> startHelpers(GameField field, Color color, long deadline) {
+        List<Future<SearchResult>> result = new ArrayList<Future<SearchResult>>();
+
+        for (int i = 0; i < helpers.length; i++) {
+            SearchEngine helper = helpers[i];
+            GameField fieldCopy = field.getDeepCopy();
+            // половина помощников начинает на одну глубину дальше, чтобы потоки расходились по дереву
+            int firstDepth = 1 + (i + 1) % 2;
+
+            helper.stopRequested = false;
+            result.add(helpersPool.submit(() -> {
+                SearchResult helperResult = new SearchResult();
+                helper.iterativeDeepening(fieldCopy, color, firstDepth, deadline, helperResult);
+                return helperResult;
+            }));
+        }
+
+        return result;
+    }
+
+    /**
+     * Остановка вспомогательных потоков и ожидание их завершения.
+     * Узлы и отсечения помощников добавляются к результату.
+     */
+    private void stopHelpers(List<Future<SearchResult>> helperTasks, SearchResult result) {
+        for (SearchEngine helper : helpers) {
+            helper.stopRequested = true;
+        }
+
+        for (var task : helperTasks) {
+            try {
+                SearchResult helperResult = task.get();
+                result.nodes += helperResult.nodes;
+                result.cutoffs += helperResult.cutoffs;
+                result.firstMoveCutoffs += helperResult.firstMoveCutoffs;
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Ошибка во вспомогательном потоке поиска", e);
+            }
+        }
+    }
+
+    /**
+     * Итерация поиска на заданную глубину. Ходы проверяются в порядке убывания оценок предыдущей итерации,
+     * лучший ход предыдущей итерации - первым.
+     * @return Индекс клетки лучшего хода.
+     */
+    private int searchRoot(GameField field, Color color, int depth) {
+        int alpha = -INFINITY;
+        int bestSquare = rootSquares[0];
+
+        for (int i = 0; i < rootMovesCount; i++) {
+            int square = rootSquares[i];
+            field.placeChip(square, color);
+            int score = -negamax(field, color.getOppositeColor(), depth - 1, 1, -INFINITY, -alpha);
+            field.undoMove(1);
+
+            if (aborted) {
+                break;
+            }
+            rootScores[i] = score;
+            if (score > alpha) {
+                alpha = score;
+                bestSquare = square;
+            }
+        }
+
+        if (!aborted) {
+            long key = field.getHash() ^ Zobrist.getSideKey(color);
+            transpositionTable.store(key, depth, TranspositionTable.BOUND_EXACT, alpha, bestSquare);
+            sortRootMoves(bestSquare);
+        }
+
+        lastRootScore = alpha;
+        return bestSquare;
+    }
+
+    /**
+     * Сортировка ходов корня по убыванию оценок, лучший ход ставится первым.
+     */
+    private void sortRootMoves(int bestSquare) {
+        for (int i = 0; i < rootMovesCount; i++) {
+            if (rootSquares[i] == bestSquare) {
+                rootScores[i] = INFINITY;
+            }
+        }
+
+        for (int i = 1; i < rootMovesCount; i++) {
+            int square = rootSquares[i];
+            int score = rootScores[i];
+            int j = i;
+            while (j > 0 && rootScores[j - 1] < score) {
+                rootSquares[j] = rootSquares[j - 1];
+                rootScores[j] = rootScores[j - 1];
+                j--;
+            }
+            rootSquares[j] = square;
+            rootScores[j] = score;
+        }
+    }
+
+    private int negamax(GameField field, Color color, int depth, int ply, int alpha, int beta) {
+        nodes++;
+        if (isLimitReached()) {
+            aborted = true;
+            return 0;
+        }
+
+        if (!wide && depth >= STABILITY_MIN_DEPTH) {
+            int bound = getStabilityBound(field, color, alpha, beta);
+            if (bound != 0) {
+                if (stats != null) {
+                    stats.stabilityCutoffs++;
+                }
+                return bound;
+            }
+        }
+
+        int[] squares = movesBuffer[ply];
+        long moves = 0;
+        int movesCount;
+        if (wide) {
+            movesCount = field.getAvailableSquares(color, squares);
+        } else {
+            moves = field.getAvailableMovesMask(color);
+            movesCount = Long.bitCount(moves);
+        }
+
+        if (movesCount == 0) {
+            if (!field.canMakeMove(color.getOppositeColor())) {
+                return evaluateFinal(field, color);
+            }
+
+            // пропуск хода не уменьшает глубину
+            return -negamax(field, color.getOppositeColor(), depth, ply + 1, -beta, -alpha);
+        }
+
+        if (depth == 0) {
+            if (stats != null) {
+                stats.leafEvaluations++;
+            }
+            if (wide) {
+                return SimpleEvaluator.evaluate(field, color);
+            }
+            return evaluator.evaluate(field.getChipsMask(color), field.getChipsMask(color.getOppositeColor()));
+        }
+
+        long key = field.getHash() ^ Zobrist.getSideKey(color);
+        int originalAlpha = alpha;
+        int hashMove = TranspositionTable.NO_MOVE;
+
+        long entry = transpositionTable.probe(key);
+        if (stats != null) {
+            stats.tableProbes++;
+            if (entry != 0) {
+                stats.tableHits++;
+            }
+        }
+        if (entry != 0) {
+            hashMove = TranspositionTable.getBestMove(entry);
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = TranspositionTable.getScore(entry);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT) {
+                    return score;
+                } else if (bound == TranspositionTable.BOUND_LOWER) {
+                    alpha = Integer.max(alpha, score);
+                } else {
+                    beta = Integer.min(beta, score);
+                }
+
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int best = -INFINITY;
+        int bestSquare = TranspositionTable.NO_MOVE;
+
+        if (wide) {
+            moveOrderer.orderSquares(squares, movesCount, hashMove, ply, color);
+        } else {
+            movesCount = moveOrderer.orderMoves(field.getChipsMask(color), field.getChipsMask(color.getOppositeColor()),
+                    moves, hashMove, ply, depth, color, squares);
+        }
+
+        for (int i = 0; i < movesCount; i++) {
+            int square = squares[i];
+            field.placeChip(square, color);
+            int score = -negamax(field, color.getOppositeColor(), depth - 1, ply + 1, -beta, -alpha);
+            field.undoMove(1);
+
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestSquare = square;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        moveOrderer.onCutoff(square, ply, depth, color, i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if (best <= originalAlpha) {
+            bound = TranspositionTable.BOUND_UPPER;
+        } else if (best >= beta) {
+            bound = TranspositionTable.BOUND_LOWER;
+        } else {
+            bound = TranspositionTable.BOUND_EXACT;
+        }
+        transpositionTable.store(key, depth, bound, best, bestSquare);
+
+        return best;
+    }
+
+    /**
+     * Отсечение по стабильным фишкам. Больше половины клеток поля у стабильных фишек одной стороны - исход партии решен,
+     * и итоговая разность ограничена: не больше squaresCount - 2 * (стабильные фишки соперника).
+     * Проверяется только сторона, фишки которой занимают больше половины клеток поля.
+     * @return Граница оценки, лежащая вне окна (alpha, beta), или 0, если отсечения нет.
+     */
+    private int getStabilityBound(GameField field, Color color, int alpha, int beta) {
+        long player = field.getChipsMask(color);
+        long opponent = field.getChipsMask(color.getOppositeColor());
+        if (2 * Long.bitCount(opponent) > squaresCount) {
+            int stable = getStableDiscsCount(field, opponent, player, color.getOppositeColor());
+            int bound = -WIN_SCORE + squaresCount - 2 * stable;
+            if (2 * stable > squaresCount && bound <= alpha) {
+                return bound;
+            }
+        } else if (2 * Long.bitCount(player) > squaresCount) {
+            int stable = getStableDiscsCount(field, player, opponent, color);
+            int bound = WIN_SCORE + 2 * stable - squaresCount;
+            if (2 * stable > squaresCount && bound >= beta) {
+                return bound;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Количество стабильных фишек цвета color (см. Stability) через кеш. Ключ учитывает маску поля,
+     * потому что хеш позиции не зависит от размера поля.
+     */
+    private int getStableDiscsCount(GameField field, long player, long opponent, Color color) {
+        long key = field.getHash() ^ Zobrist.getSideKey(color) ^ validMask;
+        int index = (int) key & (STABILITY_CACHE_SIZE - 1);
+        if (stabilityKeys[index] == key) {
+            return stabilityCounts[index];
+        }
+
+        int count = Stability.getStableDiscsCount(player, opponent, validMask);
+        stabilityKeys[index] = key;
+        stabilityCounts[index] = count;
+        return count;
+    }
+
+    private boolean isLimitReached() {
+        if (stopRequested) {
+            return true;
+        }
+        if (config.nodeLimit > 0 && nodes >= config.nodeLimit) {
+            return true;
+        }
+
+        return nodes % TIME_CHECK_INTERVAL == 0 && System.nanoTime() >= deadlineNanos;
+    }
+}
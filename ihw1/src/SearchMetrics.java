@@ -0,0 +1,151 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Накопленные показатели поиска и подробности последнего хода. Один экземпляр можно передать
+ * нескольким поискам через SearchConfig.metrics, запись потокобезопасна.
+ * Регистрируется в JMX как reversi:type=SearchMetrics,name=имя (см. register).
+ */
+public class SearchMetrics implements SearchMetricsMXBean {
+    private final LongAdder searchesCount = new LongAdder();
+    private final LongAdder totalNodes = new LongAdder();
+    private final LongAdder totalTimeNanos = new LongAdder();
+    private final AtomicLong slowestTimeNanos = new AtomicLong();
+
+    private volatile SearchResult lastResult = new SearchResult();
+
+    /**
+     * Создание показателей и регистрация их в MBeanServer платформы.
+     * @return Показатели. Если зарегистрировать не удалось, показатели все равно собираются.
+     */
+    public static SearchMetrics register(String name) {
+        SearchMetrics result = new SearchMetrics();
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var objectName = new ObjectName("reversi:type=SearchMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(result, objectName);
+        } catch (JMException e) {
+            System.err.printf("Не удалось зарегистрировать показатели поиска %s: %s\n", name, e.getMessage());
+        }
+
+        return result;
+    }
+
+    public void record(SearchResult result) {
+        searchesCount.increment();
+        totalNodes.add(result.nodes);
+        totalTimeNanos.add(result.timeNanos);
+        slowestTimeNanos.accumulateAndGet(result.timeNanos, Long::max);
+        lastResult = result;
+    }
+
+    /**
+     * Результат последнего поиска (снимок, не изменяется).
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+
+    @Override
+    public long getSearchesCount() {
+        return searchesCount.sum();
+    }
+
+    @Override
+    public long getTotalNodes() {
+        return totalNodes.sum();
+    }
+
+    @Override
+    public long getTotalTimeMillis() {
+        return totalTimeNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getSlowestSearchTimeMillis() {
+        return slowestTimeNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long getLastNodes() {
+        return lastResult.nodes;
+    }
+
+    @Override
+    public long getLastTimeMillis() {
+        return lastResult.getTimeMillis();
+    }
+
+    @Override
+    public int getLastDepth() {
+        return lastResult.depth;
+    }
+
+    @Override
+    public boolean isLastExact() {
+        return lastResult.exact;
+    }
+
+    @Override
+    public long getLastLeafEvaluations() {
+        SearchStats stats = lastResult.stats;
+        return stats == null ? 0 : stats.leafEvaluations;
+    }
+
+    @Override
+    public long getLastCutoffs() {
+        return lastResult.cutoffs;
+    }
+
+    @Override
+    public double getLastFirstMoveCutoffPercent() {
+        return lastResult.getFirstMoveCutoffPercent();
+    }
+
+    @Override
+    public double getLastTableHitPercent() {
+        SearchStats stats = lastResult.stats;
+        return stats == null ? 0 : stats.getTableHitPercent();
+    }
+
+    @Override
+    public double getLastEffectiveBranchingFactor() {
+        SearchStats stats = lastResult.stats;
+        return stats == null ? 0 : stats.getEffectiveBranchingFactor();
+    }
+
+    @Override
+    public long[] getLastIterationTimesMillis() {
+        SearchStats stats = lastResult.stats;
+        if (stats == null) {
+            return new long[0];
+        }
+
+        long[] result = new long[stats.iterationsCount];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = stats.getIterationMillis(i);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String getLastPrincipalVariation() {
+        return lastResult.getPrincipalVariationString();
+    }
+
+    @Override
+    public void reset() {
+        searchesCount.reset();
+        totalNodes.reset();
+        totalTimeNanos.reset();
+        slowestTimeNanos.set(0);
+        lastResult = new SearchResult();
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Показатели поиска робота для JMX (см. SearchMetrics).
+ */
+public interface SearchMetricsMXBean {
+    long getSearchesCount();
+
+    long getTotalNodes();
+
+    long getTotalTimeMillis();
+
+    long getSlowestSearchTimeMillis();
+
+    long getLastNodes();
+
+    long getLastTimeMillis();
+
+    int getLastDepth();
+
+    boolean isLastExact();
+
+    long getLastLeafEvaluations();
+
+    long getLastCutoffs();
+
+    double getLastFirstMoveCutoffPercent();
+
+    double getLastTableHitPercent();
+
+    double getLastEffectiveBranchingFactor();
+
+    long[] getLastIterationTimesMillis();
+
+    String getLastPrincipalVariation();
+
+    void reset();
+}
@@ -0,0 +1,75 @@
+public class SearchResult {
+    /**
+     * Индекс клетки лучшего хода (см. BoardGeometry). -1 - если ходов нет.
+     */
+    public int bestSquare = -1;
+    public int score = 0;
+
+    /**
+     * Глубина последней полностью завершенной итерации.
+     */
+    public int depth = 0;
+    public long nodes = 0;
+
+    /**
+     * true - оценка получена точным перебором до конца партии (см. EndgameSolver).
+     */
+    public boolean exact = false;
+    public long timeNanos = 0;
+
+    /**
+     * Количество отсечений и отсечений на первом проверенном ходе (см. MoveOrderer).
+     */
+    public long cutoffs = 0;
+    public long firstMoveCutoffs = 0;
+
+    /**
+     * Главный вариант: ходы обеих сторон по очереди, начиная с bestSquare, пропуск хода - GameRecord.PASS.
+     * Восстанавливается по таблице транспозиций, поэтому может быть короче глубины поиска.
+     */
+    public int[] principalVariation = new int[0];
+
+    /**
+     * Поле, на котором велся поиск: по нему индексы клеток переводятся в координаты.
+     */
+    public BoardGeometry geometry = BoardGeometry.getDefault();
+
+    /**
+     * Подробная статистика или null, если она отключена (см. SearchConfig.instrumentation).
+     */
+    public SearchStats stats = null;
+
+    public long getNodesPerSecond() {
+        if (timeNanos == 0) {
+            return 0;
+        }
+
+        return nodes * 1_000_000_000L / timeNanos;
+    }
+
+    /**
+     * Доля отсечений на первом ходе в процентах - показатель качества упорядочивания ходов.
+     */
+    public double getFirstMoveCutoffPercent() {
+        return cutoffs == 0 ? 0 : firstMoveCutoffs * 100.0 / cutoffs;
+    }
+
+    /**
+     * Главный вариант в виде строки ходов ("d3 c5 -- f4", пропуск хода - "--").
+     */
+    public String getPrincipalVariationString() {
+        StringBuilder result = new StringBuilder();
+        for (int square : principalVariation) {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(square == GameRecord.PASS ? "--" : geometry.squareToString(square));
+        }
+
+        return result.toString();
+    }
+
+    public long getTimeMillis() {
+        return timeNanos / 1_000_000;
+    }
+}
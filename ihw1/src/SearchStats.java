@@ -0,0 +1,74 @@
+/**
+ * Подробная статистика поиска одного хода (см. SearchConfig.instrumentation).
+ * Во время поиска заполняется простыми счетчиками без выделения памяти, в SearchResult попадает копия.
+ */
+public class SearchStats {
+    public static final int MAX_ITERATIONS = 64;
+
+    public long leafEvaluations = 0;
+    public long tableProbes = 0;
+    public long tableHits = 0;
+
+    /**
+     * Узлы, отсеченные по стабильным фишкам (см. Stability): исход партии уже решен и окно недостижимо.
+     */
+    public long stabilityCutoffs = 0;
+
+    /**
+     * Завершенные итерации углубления: время от начала поиска и количество узлов к концу итерации.
+     */
+    public int iterationsCount = 0;
+    public final long[] iterationEndNanos = new long[MAX_ITERATIONS];
+    public final long[] iterationEndNodes = new long[MAX_ITERATIONS];
+
+    public void clear() {
+        leafEvaluations = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        stabilityCutoffs = 0;
+        iterationsCount = 0;
+    }
+
+    public void addIteration(long elapsedNanos, long nodes) {
+        if (iterationsCount < MAX_ITERATIONS) {
+            iterationEndNanos[iterationsCount] = elapsedNanos;
+            iterationEndNodes[iterationsCount] = nodes;
+            iterationsCount++;
+        }
+    }
+
+    public long getIterationNodes(int iteration) {
+        return iterationEndNodes[iteration] - (iteration > 0 ? iterationEndNodes[iteration - 1] : 0);
+    }
+
+    public long getIterationMillis(int iteration) {
+        return (iterationEndNanos[iteration] - (iteration > 0 ? iterationEndNanos[iteration - 1] : 0)) / 1_000_000;
+    }
+
+    /**
+     * Эффективный коэффициент ветвления: отношение узлов двух последних итераций. 0 - если итераций меньше двух.
+     */
+    public double getEffectiveBranchingFactor() {
+        if (iterationsCount < 2 || getIterationNodes(iterationsCount - 2) == 0) {
+            return 0;
+        }
+
+        return (double) getIterationNodes(iterationsCount - 1) / getIterationNodes(iterationsCount - 2);
+    }
+
+    public double getTableHitPercent() {
+        return tableProbes == 0 ? 0 : tableHits * 100.0 / tableProbes;
+    }
+
+    public SearchStats getCopy() {
+        SearchStats copy = new SearchStats();
+        copy.leafEvaluations = leafEvaluations;
+        copy.tableProbes = tableProbes;
+        copy.tableHits = tableHits;
+        copy.stabilityCutoffs = stabilityCutoffs;
+        copy.iterationsCount = iterationsCount;
+        System.arraycopy(iterationEndNanos, 0, copy.iterationEndNanos, 0, iterationsCount);
+        System.arraycopy(iterationEndNodes, 0, copy.iterationEndNodes, 0, iterationsCount);
+        return copy;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Оценка по углам, мобильности, стабильным фишкам (см. Stability) и количеству фишек.
+ * Стабильные фишки считаются, только если занят хотя бы один угол: без углов они возможны лишь на почти заполненном поле.
+ * Экземпляр рассчитан на поле одного размера до 8x8 (по умолчанию 8x8), для полей больше - статический evaluate по полю.
+ */
+public class SimpleEvaluator implements Evaluator {
+    private static final SimpleEvaluator[] EVALUATORS = new SimpleEvaluator[BoardGeometry.MAX_SIZE + 1];
+
+    private final long validMask;
+    private final long cornersMask;
+
+    public SimpleEvaluator() {
+        this(BoardGeometry.getDefault());
+    }
+
+    public SimpleEvaluator(BoardGeometry geometry) {
+        validMask = geometry.getValidMask();
+        cornersMask = geometry.getCornersMask();
+    }
+
+    /**
+     * Общий экземпляр для поля заданного размера до 8x8.
+     */
+    public static synchronized SimpleEvaluator of(BoardGeometry geometry) {
+        if (EVALUATORS[geometry.getSize()] == null) {
+            EVALUATORS[geometry.getSize()] = new SimpleEvaluator(geometry);
+        }
+
+        return EVALUATORS[geometry.getSize()];
+    }
+
+    @Override
+    public int evaluate(long player, long opponent) {
+        int mobility = Long.bitCount(BitBoard.getMoves(player, opponent, validMask))
+                - Long.bitCount(BitBoard.getMoves(opponent, player, validMask));
+        int corners = Long.bitCount(player & cornersMask) - Long.bitCount(opponent & cornersMask);
+        int discs = Long.bitCount(player) - Long.bitCount(opponent);
+
+        int stable = 0;
+        if (((player | opponent) & cornersMask) != 0) {
+            stable = Stability.getStableDiscsDifference(player, opponent, validMask);
+        }
+
+        return 30 * corners + 10 * mobility + 10 * stable + discs;
+    }
+
+    /**
+     * Оценка без стабильных фишек для поля любого размера с точки зрения игрока color.
+     */
+    public static int evaluate(GameField field, Color color) {
+        Color opponentColor = color.getOppositeColor();
+        int mobility = field.getMovesCount(color) - field.getMovesCount(opponentColor);
+        int discs = field.getChipsCount(color) - field.getChipsCount(opponentColor);
+
+        int corners = 0;
+        for (int square : field.getGeometry().getCornerSquares()) {
+            Color cornerColor = field.getChipColor(square);
+            if (cornerColor == color) {
+                corners++;
+            } else if (cornerColor == opponentColor) {
+                corners--;
+            }
+        }
+
+        return 30 * corners + 10 * mobility + discs;
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Хранилище результатов WeakSolver: хеш-таблица с открытой адресацией в файле, отображенном в память.
+ * Записи пишутся прямо в отображение, поэтому остаются в файле и при аварийном завершении программы,
+ * и следующий запуск с тем же файлом продолжает расчет.
+ * Файл: заголовок (сигнатура, версия, размер поля, вместимость, количество записей), затем записи по 12 байт
+ * (ключ long, результат int). Ключ 0 - пустая запись.
+ */
+public class SolverStore implements AutoCloseable {
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private static final int FILE_MAGIC = 0x534F4C56;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 12;
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int count;
+
+    /**
+     * Открытие существующего файла или создание нового.
+     * @param boardSize Размер поля: результаты для другого размера не подходят.
+     * @param capacity Вместимость нового файла (степень двойки); у существующего файла сохраняется его вместимость.
+     * @throws IOException Если файл не удалось открыть или он имеет неверный формат.
+     */
+    public static SolverStore open(String path, int boardSize, int capacity) throws IOException {
+        Path filePath = Path.of(path);
+        boolean exists = Files.exists(filePath) && Files.size(filePath) > 0;
+        FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (exists) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Long.min(channel.size(), HEADER_SIZE));
+                if (header.limit() < HEADER_SIZE || header.getInt(0) != FILE_MAGIC || header.getInt(4) != FILE_VERSION) {
+                    throw new IOException("Неверный формат файла результатов: " + path);
+                }
+                if (header.getInt(8) != boardSize) {
+                    throw new IOException("Файл результатов для поля " + header.getInt(8) + "x" + header.getInt(8) + ": " + path);
+                }
+                capacity = header.getInt(12);
+                if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY || channel.size() != HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+                    throw new IOException("Неверный формат файла результатов: " + path);
+                }
+            } else if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+                throw new IllegalArgumentException("Вместимость должна быть степенью двойки не больше " + MAX_CAPACITY + ": " + capacity);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            if (!exists) {
+                buffer.putInt(0, FILE_MAGIC);
+                buffer.putInt(4, FILE_VERSION);
+                buffer.putInt(8, boardSize);
+                buffer.putInt(12, capacity);
+            }
+
+            return new SolverStore(channel, buffer, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Результат или NOT_FOUND.
+     */
+    public synchronized int get(long key) {
+        key = normalizeKey(key);
+        for (int index = getIndex(key); ; index = (index + 1) & (capacity - 1)) {
+            long offset = getOffset(index);
+            long recordKey = buffer.getLong((int) offset);
+            if (recordKey == key) {
+                return buffer.getInt((int) offset + 8);
+            } else if (recordKey == 0) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    /**
+     * Запись результата. Существующая запись с тем же ключом перезаписывается.
+     * @throws IllegalStateException Если хранилище заполнено.
+     */
+    public synchronized void put(long key, int value) {
+        key = normalizeKey(key);
+        for (int index = getIndex(key); ; index = (index + 1) & (capacity - 1)) {
+            long offset = getOffset(index);
+            long recordKey = buffer.getLong((int) offset);
+            if (recordKey == key) {
+                buffer.putInt((int) offset + 8, value);
+                return;
+            } else if (recordKey == 0) {
+                // таблица заполняется не больше чем на 3/4, чтобы поиск оставался коротким
+                if (count >= capacity - capacity / 4) {
+                    throw new IllegalStateException("Хранилище результатов заполнено: " + count + " записей");
+                }
+                // ключ пишется последним: запись без результата не должна оказаться в файле
+                buffer.putInt((int) offset + 8, value);
+                buffer.putLong((int) offset, key);
+                count++;
+                buffer.putInt(16, count);
+                return;
+            }
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Размер файла (и отображения) в байтах.
+     */
+    public long getFileSize() {
+        return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+    }
+
+    /**
+     * Сброс измененных страниц на диск.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /* ===== private ===== */
+
+    private SolverStore(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = buffer.getInt(16);
+    }
+
+    private static long normalizeKey(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    private int getIndex(long key) {
+        return (int) (key ^ (key >>> 32)) & (capacity - 1);
+    }
+
+    private static long getOffset(int index) {
+        return HEADER_SIZE + (long) index * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Стабильные фишки - фишки, которые невозможно перевернуть до конца партии.
+ * Фишка считается стабильной, если по каждой из четырех осей (горизонталь, вертикаль, две диагонали) линия через нее
+ * заполнена до краев поля, либо соседняя по оси клетка с одной из сторон - край поля или стабильная фишка того же цвета.
+ * Расчет начинается с углов и заполненных краев и повторяется, пока множество растет. Находятся не все стабильные
+ * фишки, но найденные стабильны наверняка, поэтому их количество дает границы итоговой разности фишек.
+ * Работает с битовыми масками (см. BitBoard), клетки вне маски поля считаются краем; поля больше 8x8 не поддерживаются.
+ */
+public class Stability {
+    private static final long FIRST_COLUMN = 0x0101010101010101L;
+
+    /**
+     * Направления осей (индексы BitBoard): (0, 1) и (0, -1), (1, 0) и (-1, 0), (1, 1) и (-1, -1), (1, -1) и (-1, 1).
+     */
+    private static final int[][] AXES = {{0, 1}, {2, 5}, {3, 7}, {4, 6}};
+
+    /**
+     * Для каждого направления - клетки, соседняя клетка которых в этом направлении находится за краем поля 8x8.
+     */
+    private static final long[] EDGES = new long[BitBoard.DIRECTIONS_COUNT];
+
+    static {
+        for (int[] axis : AXES) {
+            EDGES[axis[0]] = ~BitBoard.shift(-1L, axis[1]);
+            EDGES[axis[1]] = ~BitBoard.shift(-1L, axis[0]);
+        }
+    }
+
+    /**
+     * Нахождение стабильных фишек игрока.
+     * @param player Фишки игрока, стабильные фишки которого ищутся.
+     * @param opponent Фишки соперника.
+     * @param validMask Маска клеток поля (см. BoardGeometry.getValidMask).
+     * @return Маска стабильных фишек игрока.
+     */
+    public static long getStableDiscs(long player, long opponent, long validMask) {
+        long walls = ~validMask;
+        long occupied = player | opponent | walls;
+
+        return getStableDiscs(player, walls, getFullRows(occupied), getFullColumns(occupied),
+                getFullLines(occupied, AXES[2]), getFullLines(occupied, AXES[3]));
+    }
+
+    /**
+     * Количество стабильных фишек игрока (см. getStableDiscs).
+     */
+    public static int getStableDiscsCount(long player, long opponent, long validMask) {
+        return Long.bitCount(getStableDiscs(player, opponent, validMask));
+    }
+
+    /**
+     * Разность количеств стабильных фишек игрока и соперника. Заполненные линии зависят только от занятых клеток,
+     * поэтому считаются один раз для обоих цветов.
+     */
+    public static int getStableDiscsDifference(long player, long opponent, long validMask) {
+        long walls = ~validMask;
+        long occupied = player | opponent | walls;
+
+        long horizontal = getFullRows(occupied);
+        long vertical = getFullColumns(occupied);
+        long diagonal = getFullLines(occupied, AXES[2]);
+        long antiDiagonal = getFullLines(occupied, AXES[3]);
+        return Long.bitCount(getStableDiscs(player, walls, horizontal, vertical, diagonal, antiDiagonal))
+                - Long.bitCount(getStableDiscs(opponent, walls, horizontal, vertical, diagonal, antiDiagonal));
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Расширение множества стабильных фишек от углов и краев, пока оно растет.
+     * @param horizontal Клетки заполненных строк, остальные маски осей - аналогично.
+     */
+    private static long getStableDiscs(long player, long walls, long horizontal, long vertical, long diagonal, long antiDiagonal) {
+        long stable = 0;
+        while (true) {
+            long anchors = stable | walls;
+            long next = player
+                    & (horizontal | getAnchored(anchors, AXES[0]))
+                    & (vertical | getAnchored(anchors, AXES[1]))
+                    & (diagonal | getAnchored(anchors, AXES[2]))
+                    & (antiDiagonal | getAnchored(anchors, AXES[3]));
+            if (next == stable) {
+                return stable;
+            }
+            stable = next;
+        }
+    }
+
+    /**
+     * Клетки заполненных строк: биты строки свертываются в ее первый бит, который затем размножается на строку.
+     */
+    private static long getFullRows(long occupied) {
+        long result = occupied & (occupied >>> 4);
+        result &= result >>> 2;
+        result &= result >>> 1;
+        return (result & FIRST_COLUMN) * 0xFFL;
+    }
+
+    /**
+     * Клетки заполненных столбцов: то же, что getFullRows, по строкам вместо столбцов.
+     */
+    private static long getFullColumns(long occupied) {
+        long result = occupied & (occupied >>> 32);
+        result &= result >>> 16;
+        result &= result >>> 8;
+        return (result & 0xFFL) * FIRST_COLUMN;
+    }
+
+    /**
+     * Клетки, линия через которые по оси занята целиком (клетки вне поля считаются занятыми).
+     */
+    private static long getFullLines(long occupied, int[] axis) {
+        return getFilledRay(occupied, axis[0], axis[1]) & getFilledRay(occupied, axis[1], axis[0]);
+    }
+
+    /**
+     * Занятые клетки, от которых все клетки до края поля в направлении direction заняты.
+     * @param opposite Направление, противоположное direction.
+     */
+    private static long getFilledRay(long occupied, int direction, int opposite) {
+        long result = occupied;
+        for (int i = 1; i < BitBoard.DIRECTIONS_COUNT; i++) {
+            result &= BitBoard.shift(result, opposite) | EDGES[direction];
+        }
+
+        return result;
+    }
+
+    /**
+     * Клетки, соседняя клетка которых по оси хотя бы с одной стороны - край поля или клетка из anchors.
+     */
+    private static long getAnchored(long anchors, int[] axis) {
+        return BitBoard.shift(anchors, axis[1]) | EDGES[axis[0]] | BitBoard.shift(anchors, axis[0]) | EDGES[axis[1]];
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Таблица транспозиций фиксированного размера на примитивных массивах.
+ * Таблица разбита на корзины по две записи: первая заменяется только более глубокой
+ * (или устаревшей) записью, вторая - всегда. Запись упакована в одно число long:
+ * биты 0-7 - лучший ход, 8-15 - глубина, 16-17 - тип границы, 18-23 - поколение, 32-63 - оценка.
+ * Таблица общая для потоков параллельного поиска и работает без блокировок: в массиве ключей хранится
+ * XOR ключа и записи, поэтому запись, разорванная одновременной перезаписью, не совпадет с ключом при чтении.
+ * Счетчики обращений общие для потоков и ведутся, только если включены при создании таблицы.
+ */
+public class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    public static final int NO_MOVE = 0xFF;
+
+    private static final int ENTRY_SIZE_BYTES = 16;
+    private static final int BUCKET_SIZE = 2;
+    private static final int GENERATION_MASK = 0x3F;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final long bucketMask;
+    private int generation;
+
+    private final boolean counting;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    /**
+     * @param sizeMb Размер таблицы в мегабайтах. Количество корзин округляется вниз до степени двойки.
+     */
+    public TranspositionTable(int sizeMb) {
+        this(sizeMb, false);
+    }
+
+    /**
+     * @param counting true - вести счетчики обращений (getProbes, getHits, getStores, getOverwrites).
+     */
+    public TranspositionTable(int sizeMb, boolean counting) {
+        this.counting = counting;
+        long bucketsCount = Long.highestOneBit(Long.max(1, (long) sizeMb * 1024 * 1024 / (ENTRY_SIZE_BYTES * BUCKET_SIZE)));
+        keys = new long[(int) (bucketsCount * BUCKET_SIZE)];
+        entries = new long[(int) (bucketsCount * BUCKET_SIZE)];
+        bucketMask = bucketsCount - 1;
+    }
+
+    /**
+     * Поиск записи.
+     * @param key Хеш позиции вместе с ключом стороны, которая ходит.
+     * @return Упакованная запись или 0, если позиции нет в таблице.
+     */
+    public long probe(long key) {
+        if (counting) {
+            probes.increment();
+        }
+
+        int index = getBucketIndex(key);
+        for (int i = index; i < index + BUCKET_SIZE; i++) {
+            long entry = entries[i];
+            if (entry != 0 && (keys[i] ^ entry) == key) {
+                if (counting) {
+                    hits.increment();
+                }
+                return entry;
+            }
+        }
+
+        return 0;
+    }
+
+    public void store(long key, int depth, int bound, int score, int bestMove) {
+        if (counting) {
+            stores.increment();
+        }
+
+        long entry = pack(depth, bound, score, bestMove);
+        int index = getBucketIndex(key);
+
+        long firstEntry = entries[index];
+        int target;
+        if (firstEntry == 0 || (keys[index] ^ firstEntry) == key || depth >= getDepth(firstEntry)
+                || getGeneration(firstEntry) != generation) {
+            target = index;
+        } else {
+            target = index + 1;
+        }
+
+        long oldEntry = entries[target];
+        if (counting && oldEntry != 0 && (keys[target] ^ oldEntry) != key) {
+            overwrites.increment();
+        }
+        keys[target] = key ^ entry;
+        entries[target] = entry;
+    }
+
+    /**
+     * Начало нового поиска: записи прошлых поисков становятся кандидатами на замену.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+    }
+
+    public static int getBestMove(long entry) {
+        return (int) (entry & 0xFF);
+    }
+
+    public static int getDepth(long entry) {
+        return (int) ((entry >>> 8) & 0xFF);
+    }
+
+    public static int getBound(long entry) {
+        return (int) ((entry >>> 16) & 0x3);
+    }
+
+    public static int getScore(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return probes.sum() - hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    public void resetCounters() {
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+
+    /* ===== private ===== */
+
+    private int getBucketIndex(long key) {
+        return (int) (key & bucketMask) * BUCKET_SIZE;
+    }
+
+    private long pack(int depth, int bound, int score, int bestMove) {
+        return ((long) score << 32)
+                | ((long) generation << 18)
+                | ((long) bound << 16)
+                | ((long) depth << 8)
+                | (bestMove & 0xFF);
+    }
+
+    private static int getGeneration(long entry) {
+        return (int) ((entry >>> 18) & GENERATION_MASK);
+    }
+}
@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Слабое решение поля до 8x8 (по умолчанию 6x6): выигрыш, ничья или проигрыш в начальной позиции при игре обеих сторон без ошибок.
+ * Дерево позиций до глубины разбиения строится в памяти: пропуск хода считается ходом, симметричные ходы из одной позиции
+ * оставляются одним, ходы упорядочиваются по возрастанию мобильности соперника. Листья в порядке обхода дерева
+ * решаются в нескольких потоках EndgameSolver с окном (-1, 1) вокруг ничьей, результаты поднимаются к корню
+ * по правилам минимакса. Лист пропускается, если результат одного из его предков уже известен.
+ * Результаты листьев сохраняются по ключу позиции с учетом симметрии в SolverStore, поэтому прерванный расчет
+ * продолжается с места остановки, а повторяющиеся листья решаются один раз.
+ * Во время расчета выводятся скорость перебора (позиций в секунду) и занятая память - это заодно нагрузочный тест движка.
+ * Запуск: java WeakSolver [размер поля] [потоков] [глубина разбиения] [файл результатов].
+ */
+public class WeakSolver {
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final int DEFAULT_SIZE = 6;
+    private static final int DEFAULT_SPLIT_PLIES = 8;
+    private static final int TABLE_SIZE_MB = 32;
+    private static final int MIN_STORE_CAPACITY = 1 << 16;
+    private static final long REPORT_INTERVAL_MILLIS = 10_000;
+
+    private final int size;
+    private final long validMask;
+    private final Node root;
+    private final List<Node> leaves = new ArrayList<Node>();
+    private int nodesCount;
+
+    private final AtomicInteger nextLeaf = new AtomicInteger();
+    private final LongAdder solvedLeaves = new LongAdder();
+    private final LongAdder storedLeaves = new LongAdder();
+    private final LongAdder skippedLeaves = new LongAdder();
+    private final LongAdder solverNodes = new LongAdder();
+    private volatile boolean finished;
+
+    /**
+     * Построение дерева позиций.
+     * @param field Поле размером до 8x8.
+     * @param color Цвет игрока, который ходит.
+     * @param splitPlies Глубина дерева: позиции на этом расстоянии от корня решаются целиком.
+     */
+    public WeakSolver(GameField field, Color color, int splitPlies) {
+        BoardGeometry geometry = field.getGeometry();
+        if (geometry.isWide()) {
+            throw new IllegalArgumentException("Решаются только поля до 8x8");
+        }
+
+        size = geometry.getSize();
+        validMask = geometry.getValidMask();
+        root = build(field.getChipsMask(color), field.getChipsMask(color.getOppositeColor()), null, TranspositionTable.NO_MOVE, splitPlies);
+    }
+
+    /**
+     * Решение листьев дерева.
+     * @param store Хранилище результатов для поля того же размера.
+     * @param threadsCount Количество потоков.
+     * @return Результат для игрока, который ходит в корне: WIN, DRAW или LOSS.
+     */
+    public int solve(SolverStore store, int threadsCount) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threadsCount);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < threadsCount; i++) {
+            futures.add(pool.submit(() -> runWorker(store)));
+        }
+        pool.shutdown();
+
+        while (!pool.awaitTermination(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+            printProgress(store, startNanos);
+            store.flush();
+        }
+        printProgress(store, startNanos);
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка при решении позиций", e.getCause());
+        }
+
+        return getValue(root);
+    }
+
+    public int getLeavesCount() {
+        return leaves.size();
+    }
+
+    public int getNodesCount() {
+        return nodesCount;
+    }
+
+    /**
+     * Результаты ходов из корня для игрока, который ходит в корне.
+     * @return Пары {клетка хода, результат}; результат UNKNOWN - ход не понадобилось решать.
+     * Клетка TranspositionTable.NO_MOVE - пропуск хода.
+     */
+    public synchronized int[][] getRootMoves() {
+        int[][] result = new int[root.children.length][];
+        for (int i = 0; i < result.length; i++) {
+            Node child = root.children[i];
+            result[i] = new int[]{child.square, child.value == UNKNOWN ? UNKNOWN : -child.value};
+        }
+
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int threadsCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int splitPlies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SPLIT_PLIES;
+        String path = args.length > 3 ? args[3] : "solver" + size + "x" + size + ".bin";
+        if (!BoardGeometry.isSupportedSize(size) || BoardGeometry.of(size).isWide()) {
+            System.out.println("Использование: java WeakSolver [размер поля до 8] [потоков] [глубина разбиения] [файл результатов]");
+            return;
+        }
+
+        GameField field = new GameField(size);
+        field.setupStartState();
+        WeakSolver solver = new WeakSolver(field, Color.BLACK, splitPlies);
+        System.out.printf("Поле %dx%d, глубина разбиения %d: позиций в дереве %d, листьев %d, потоков %d\n",
+                size, size, splitPlies, solver.getNodesCount(), solver.getLeavesCount(), threadsCount);
+
+        int capacity = Integer.max(MIN_STORE_CAPACITY, Integer.highestOneBit(solver.getLeavesCount()) * 4);
+        try (SolverStore store = SolverStore.open(path, size, capacity)) {
+            System.out.printf("Файл результатов %s: записей %d\n", path, store.getCount());
+            int result = solver.solve(store, threadsCount);
+
+            System.out.printf("Результат для черных: %s\n", valueToString(result));
+            for (int[] move : solver.getRootMoves()) {
+                String square = move[0] == TranspositionTable.NO_MOVE ? "пропуск" : field.getGeometry().squareToString(move[0]);
+                System.out.printf("  %s: %s\n", square, valueToString(move[1]));
+            }
+        }
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Позиция дерева. Результат value - с точки зрения игрока player; поля результатов меняются под блокировкой решателя.
+     */
+    private static class Node {
+        final long player;
+        final long opponent;
+        final Node parent;
+        final int square;
+        Node[] children = new Node[0];
+        boolean gameOver;
+
+        int value = UNKNOWN;
+        int best = UNKNOWN;
+        int resolvedCount;
+
+        Node(long player, long opponent, Node parent, int square) {
+            this.player = player;
+            this.opponent = opponent;
+            this.parent = parent;
+            this.square = square;
+        }
+    }
+
+    private Node build(long player, long opponent, Node parent, int square, int plies) {
+        Node node = new Node(player, opponent, parent, square);
+        nodesCount++;
+
+        long moves = BitBoard.getMoves(player, opponent, validMask);
+        if (moves == 0 && BitBoard.getMoves(opponent, player, validMask) == 0) {
+            node.gameOver = true;
+            leaves.add(node);
+            return node;
+        }
+        if (plies == 0) {
+            leaves.add(node);
+            return node;
+        }
+        if (moves == 0) {
+            node.children = new Node[]{build(opponent, player, node, TranspositionTable.NO_MOVE, plies - 1)};
+            return node;
+        }
+
+        int count = 0;
+        int[] squares = new int[Long.bitCount(moves)];
+        int[] mobilities = new int[squares.length];
+        long[] keys = new long[squares.length];
+        while (moves != 0) {
+            int move = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+
+            long flips = BitBoard.getFlips(player, opponent, move);
+            long newPlayer = opponent & ~flips;
+            long newOpponent = player | (1L << move) | flips;
+            long key = getCanonicalKey(newPlayer, newOpponent);
+            if (contains(keys, count, key)) {
+                continue;
+            }
+
+            int mobility = Long.bitCount(BitBoard.getMoves(newPlayer, newOpponent, validMask));
+            int i = count;
+            while (i > 0 && mobilities[i - 1] > mobility) {
+                squares[i] = squares[i - 1];
+                mobilities[i] = mobilities[i - 1];
+                keys[i] = keys[i - 1];
+                i--;
+            }
+            squares[i] = move;
+            mobilities[i] = mobility;
+            keys[i] = key;
+            count++;
+        }
+
+        node.children = new Node[count];
+        for (int i = 0; i < count; i++) {
+            long flips = BitBoard.getFlips(player, opponent, squares[i]);
+            node.children[i] = build(opponent & ~flips, player | (1L << squares[i]) | flips, node, squares[i], plies - 1);
+        }
+
+        return node;
+    }
+
+    private void runWorker(SolverStore store) {
+        EndgameSolver endgameSolver = new EndgameSolver(TABLE_SIZE_MB);
+        while (!finished) {
+            int index = nextLeaf.getAndIncrement();
+            if (index >= leaves.size()) {
+                return;
+            }
+
+            Node leaf = leaves.get(index);
+            if (isDecided(leaf)) {
+                skippedLeaves.increment();
+                continue;
+            }
+
+            int value;
+            if (leaf.gameOver) {
+                value = Integer.signum(Long.bitCount(leaf.player) - Long.bitCount(leaf.opponent));
+            } else {
+                long key = getCanonicalKey(leaf.player, leaf.opponent);
+                value = store.get(key);
+                if (value == SolverStore.NOT_FOUND) {
+                    value = Integer.signum(endgameSolver.solveWindow(leaf.player, leaf.opponent, validMask, LOSS, WIN));
+                    solverNodes.add(endgameSolver.getNodes());
+                    solvedLeaves.increment();
+                    store.put(key, value);
+                } else {
+                    storedLeaves.increment();
+                }
+            }
+
+            setValue(leaf, value);
+        }
+    }
+
+    /**
+     * true - результат позиции или одного из ее предков уже известен.
+     */
+    private synchronized boolean isDecided(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            if (current.value != UNKNOWN) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Запись результата позиции и подъем к предкам: позиция решена, если есть ход, ведущий к выигрышу, или решены все ходы.
+     */
+    private synchronized void setValue(Node node, int value) {
+        while (node.value == UNKNOWN) {
+            node.value = value;
+            Node parent = node.parent;
+            if (parent == null) {
+                finished = true;
+                return;
+            }
+
+            parent.resolvedCount++;
+            parent.best = Integer.max(parent.best, -value);
+            if (parent.best != WIN && parent.resolvedCount < parent.children.length) {
+                return;
+            }
+
+            node = parent;
+            value = parent.best;
+        }
+    }
+
+    private synchronized int getValue(Node node) {
+        return node.value;
+    }
+
+    private void printProgress(SolverStore store, long startNanos) {
+        long elapsedNanos = Long.max(1, System.nanoTime() - startNanos);
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%d с: листьев решено %d, из файла %d, пропущено %d из %d; %d позиций/с; куча %d МБ, файл результатов %d МБ (записей %d)\n",
+                elapsedNanos / 1_000_000_000L, solvedLeaves.sum(), storedLeaves.sum(), skippedLeaves.sum(), leaves.size(),
+                solverNodes.sum() * 1_000_000_000L / elapsedNanos,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20, store.getFileSize() >> 20, store.getCount());
+    }
+
+    /**
+     * Ключ позиции, одинаковый для всех ее симметричных вариантов (см. OpeningBook.getCanonicalKey).
+     */
+    private long getCanonicalKey(long player, long opponent) {
+        long result = BitBoard.getPositionKey(player, opponent);
+        for (int symmetry = 1; symmetry < 8; symmetry++) {
+            long key = BitBoard.getPositionKey(BitBoard.transform(player, symmetry, size), BitBoard.transform(opponent, symmetry, size));
+            result = Long.min(result, key);
+        }
+
+        return result;
+    }
+
+    private static boolean contains(long[] keys, int count, long key) {
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String valueToString(int value) {
+        switch (value) {
+            case WIN:
+                return "выигрыш";
+            case DRAW:
+                return "ничья";
+            case LOSS:
+                return "проигрыш";
+            default:
+                return "не требовался";
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Фишки поля больше 8x8 (см. BoardGeometry): маска каждого цвета - массив long, клетка (x, y) - бит x * size + y.
+ * Доступные ходы ищутся сдвигами с масками, как в BitBoard, только сдвиг переносит биты между словами,
+ * а цепочки фишек соперника продлеваются, пока не закончатся;
+ * переворачиваемые фишки находятся проходом по лучам от клетки.
+ * Хранит буферы для вычислений, поэтому экземпляр используется одним потоком.
+ */
+public class WideBitBoard {
+    private final int size;
+    private final int wordsCount;
+
+    /*
+     * Сдвиг индекса клетки и маска допустимых после сдвига клеток для каждого направления (порядок как в BitBoard).
+     */
+    private final int[] directionShifts = new int[BitBoard.DIRECTIONS_COUNT];
+    private final long[][] directionMasks;
+
+    /**
+     * Маска клеток поля в последнем слове.
+     */
+    private final long lastWordMask;
+
+    private final long[] white;
+    private final long[] black;
+
+    private final long[] frontier;
+    private final long[] empty;
+    private final long[] moves;
+
+    public WideBitBoard(BoardGeometry geometry) {
+        this.size = geometry.getSize();
+        this.wordsCount = geometry.getWordsCount();
+        this.white = new long[wordsCount];
+        this.black = new long[wordsCount];
+        this.frontier = new long[wordsCount];
+        this.empty = new long[wordsCount];
+        this.moves = new long[wordsCount];
+        int lastWordSquares = size * size - (wordsCount - 1) * Long.SIZE;
+        this.lastWordMask = lastWordSquares == Long.SIZE ? -1L : (1L << lastWordSquares) - 1;
+
+        directionMasks = new long[BitBoard.DIRECTIONS_COUNT][wordsCount];
+        for (int dir = 0; dir < BitBoard.DIRECTIONS_COUNT; dir++) {
+            directionShifts[dir] = BoardTables.DIRECTION_X[dir] * size + BoardTables.DIRECTION_Y[dir];
+            // маски содержат только клетки поля; при сдвиге по горизонтали биты крайнего столбца переходят на соседнюю строку
+            int excludedColumn = BoardTables.DIRECTION_Y[dir] > 0 ? 0 : BoardTables.DIRECTION_Y[dir] < 0 ? size - 1 : -1;
+            for (int square = 0; square < size * size; square++) {
+                if (square % size != excludedColumn) {
+                    directionMasks[dir][square >>> 6] |= 1L << square;
+                }
+            }
+        }
+    }
+
+    /**
+     * Копирование фишек другого поля того же размера.
+     */
+    public void setChips(WideBitBoard other) {
+        System.arraycopy(other.white, 0, white, 0, wordsCount);
+        System.arraycopy(other.black, 0, black, 0, wordsCount);
+    }
+
+    public void clear() {
+        for (int i = 0; i < wordsCount; i++) {
+            white[i] = 0;
+            black[i] = 0;
+        }
+    }
+
+    /**
+     * @return null - если клетка пуста.
+     */
+    public Color getColor(int square) {
+        if (isSet(white, square)) {
+            return Color.WHITE;
+        } else if (isSet(black, square)) {
+            return Color.BLACK;
+        }
+
+        return null;
+    }
+
+    public boolean isEmpty(int square) {
+        return !isSet(white, square) && !isSet(black, square);
+    }
+
+    /**
+     * Установка фишки без переворотов.
+     */
+    public void setChip(int square, Color color) {
+        long bit = 1L << square;
+        int word = square >>> 6;
+        if (color == Color.WHITE) {
+            white[word] |= bit;
+            black[word] &= ~bit;
+        } else {
+            black[word] |= bit;
+            white[word] &= ~bit;
+        }
+    }
+
+    public int getCount(Color color) {
+        long[] chips = getChips(color);
+        int result = 0;
+        for (int i = 0; i < wordsCount; i++) {
+            result += Long.bitCount(chips[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Нахождение всех доступных ходов игрока.
+     * @param result Массив из getWordsCount слов, в который записывается маска клеток.
+     */
+    public void getMoves(Color color, long[] result) {
+        long[] player = getChips(color);
+        long[] opponent = getChips(color.getOppositeColor());
+
+        for (int i = 0; i < wordsCount; i++) {
+            result[i] = 0;
+            empty[i] = ~(player[i] | opponent[i]);
+        }
+
+        for (int dir = 0; dir < BitBoard.DIRECTIONS_COUNT; dir++) {
+            // фронт - последние фишки соперника цепочек, идущих от фишек игрока; пустая клетка за фронтом - ход
+            shift(player, dir, frontier);
+            boolean hasFrontier = false;
+            for (int i = 0; i < wordsCount; i++) {
+                frontier[i] &= opponent[i];
+                hasFrontier |= frontier[i] != 0;
+            }
+
+            while (hasFrontier) {
+                shift(frontier, dir, frontier);
+                hasFrontier = false;
+                for (int i = 0; i < wordsCount; i++) {
+                    result[i] |= frontier[i] & empty[i];
+                    frontier[i] &= opponent[i];
+                    hasFrontier |= frontier[i] != 0;
+                }
+            }
+        }
+    }
+
+    public boolean hasMoves(Color color) {
+        getMoves(color, moves);
+        for (int i = 0; i < wordsCount; i++) {
+            if (moves[i] != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Количество фишек цвета, рядом с которыми (по восьми направлениям) есть пустая клетка.
+     */
+    public int getFrontierCount(Color color) {
+        for (int i = 0; i < wordsCount; i++) {
+            empty[i] = ~(white[i] | black[i]);
+            frontier[i] = 0;
+        }
+        // биты после последней клетки не пустые: сдвиг в сторону меньших индексов перенес бы их на поле
+        empty[wordsCount - 1] &= lastWordMask;
+
+        // фронт - клетки, соседние с пустыми
+        for (int dir = 0; dir < BitBoard.DIRECTIONS_COUNT; dir++) {
+            shift(empty, dir, moves);
+            for (int i = 0; i < wordsCount; i++) {
+                frontier[i] |= moves[i];
+            }
+        }
+
+        long[] chips = getChips(color);
+        int result = 0;
+        for (int i = 0; i < wordsCount; i++) {
+            result += Long.bitCount(chips[i] & frontier[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Нахождение фишек, которые будут перевернуты при установке фишки в клетку.
+     * @param result Массив, в который с позиции offset записывается маска из getWordsCount слов.
+     * @return Количество переворачиваемых фишек. 0 - если ход невозможен.
+     */
+    public int getFlips(int square, Color color, long[] result, int offset) {
+        for (int i = 0; i < wordsCount; i++) {
+            result[offset + i] = 0;
+        }
+
+        int count = 0;
+        for (int dir = 0; dir < BitBoard.DIRECTIONS_COUNT; dir++) {
+            int length = getFlipsLengthInDirection(square, color, dir);
+            int current = square;
+            for (int i = 0; i < length; i++) {
+                current += directionShifts[dir];
+                result[offset + (current >>> 6)] |= 1L << current;
+            }
+            count += length;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return Количество фишек, которые будут перевернуты в одном направлении. 0 - если замыкания нет.
+     */
+    public int getFlipsLengthInDirection(int square, Color color, int direction) {
+        long[] player = getChips(color);
+        long[] opponent = getChips(color.getOppositeColor());
+        int dx = BoardTables.DIRECTION_X[direction];
+        int dy = BoardTables.DIRECTION_Y[direction];
+
+        int x = square / size + dx;
+        int y = square % size + dy;
+        int length = 0;
+        while (x >= 0 && x < size && y >= 0 && y < size) {
+            int current = x * size + y;
+            if (isSet(opponent, current)) {
+                length++;
+            } else if (isSet(player, current)) {
+                return length;
+            } else {
+                return 0;
+            }
+            x += dx;
+            y += dy;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Установка фишки игрока в клетку и переворот фишек соперника по маске.
+     */
+    public void apply(int square, Color color, long[] flips, int offset) {
+        long[] player = getChips(color);
+        long[] opponent = getChips(color.getOppositeColor());
+        for (int i = 0; i < wordsCount; i++) {
+            player[i] |= flips[offset + i];
+            opponent[i] &= ~flips[offset + i];
+        }
+        player[square >>> 6] |= 1L << square;
+    }
+
+    /**
+     * Отмена apply с теми же аргументами.
+     */
+    public void revert(int square, Color color, long[] flips, int offset) {
+        long[] player = getChips(color);
+        long[] opponent = getChips(color.getOppositeColor());
+        for (int i = 0; i < wordsCount; i++) {
+            player[i] &= ~flips[offset + i];
+            opponent[i] |= flips[offset + i];
+        }
+        player[square >>> 6] &= ~(1L << square);
+    }
+
+    /* ===== private ===== */
+
+    private long[] getChips(Color color) {
+        return color == Color.WHITE ? white : black;
+    }
+
+    /**
+     * Сдвиг маски на одну клетку в заданном направлении. Клетки, ушедшие за край поля, отбрасываются.
+     * source и target могут совпадать.
+     */
+    private void shift(long[] source, int direction, long[] target) {
+        int shift = directionShifts[direction];
+        long[] mask = directionMasks[direction];
+
+        long carry = 0;
+        if (shift > 0) {
+            for (int i = 0; i < wordsCount; i++) {
+                long word = source[i];
+                target[i] = ((word << shift) | carry) & mask[i];
+                carry = word >>> (Long.SIZE - shift);
+            }
+        } else {
+            int rightShift = -shift;
+            for (int i = wordsCount - 1; i >= 0; i--) {
+                long word = source[i];
+                target[i] = ((word >>> rightShift) | carry) & mask[i];
+                carry = word << (Long.SIZE - rightShift);
+            }
+        }
+    }
+
+    private static boolean isSet(long[] mask, int square) {
+        return (mask[square >>> 6] & (1L << square)) != 0;
+    }
+}
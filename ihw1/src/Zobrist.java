@@ -0,0 +1,113 @@
+/**
+ * Случайные ключи для хеширования позиций методом Зобриста.
+ * Хеш позиции - XOR ключей всех фишек на поле; сторона, которая ходит, учитывается ключом SIDE_KEY.
+ */
+public class Zobrist {
+    private static final long SEED = 0x5DEECE66DL;
+
+    /**
+     * Ключи фишек: [Color.ordinal()][индекс клетки].
+     */
+    private static final long[][] CHIP_KEYS;
+
+    /**
+     * XOR ключей белой и черной фишки клетки - изменение хеша при перевороте фишки.
+     */
+    private static final long[] FLIP_KEYS;
+
+    private static final long SIDE_KEY;
+
+    static {
+        long state = SEED;
+
+        CHIP_KEYS = new long[Color.values().length][BoardGeometry.MAX_SQUARES_COUNT];
+        for (int color = 0; color < CHIP_KEYS.length; color++) {
+            for (int square = 0; square < BoardGeometry.MAX_SQUARES_COUNT; square++) {
+                state = nextRandom(state);
+                CHIP_KEYS[color][square] = state;
+            }
+        }
+
+        FLIP_KEYS = new long[BoardGeometry.MAX_SQUARES_COUNT];
+        for (int square = 0; square < BoardGeometry.MAX_SQUARES_COUNT; square++) {
+            FLIP_KEYS[square] = CHIP_KEYS[0][square] ^ CHIP_KEYS[1][square];
+        }
+
+        SIDE_KEY = nextRandom(state);
+    }
+
+    public static long getChipKey(int square, Color color) {
+        return CHIP_KEYS[color.ordinal()][square];
+    }
+
+    /**
+     * Изменение хеша при перевороте всех фишек маски.
+     * @param flips Маска переворачиваемых фишек.
+     * @return Значение, которое нужно применить к хешу операцией XOR.
+     */
+    public static long getFlipsKey(long flips) {
+        long result = 0;
+        while (flips != 0) {
+            result ^= FLIP_KEYS[Long.numberOfTrailingZeros(flips)];
+            flips &= flips - 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Изменение хеша при перевороте фишек многословной маски (см. WideBitBoard).
+     * @param flips Массив, в котором маска из wordsCount слов начинается с позиции offset.
+     */
+    public static long getFlipsKey(long[] flips, int offset, int wordsCount) {
+        long result = 0;
+        for (int i = 0; i < wordsCount; i++) {
+            long word = flips[offset + i];
+            while (word != 0) {
+                result ^= FLIP_KEYS[i * Long.SIZE + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Ключ стороны, которая ходит. Черным соответствует SIDE_KEY, белым - 0.
+     */
+    public static long getSideKey(Color color) {
+        if (color == Color.BLACK) {
+            return SIDE_KEY;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Хеш позиции, вычисленный заново по маскам фишек.
+     */
+    public static long computeHash(long whiteChips, long blackChips) {
+        long result = 0;
+        for (int square = 0; square < BitBoard.SQUARES_COUNT; square++) {
+            if ((whiteChips & (1L << square)) != 0) {
+                result ^= getChipKey(square, Color.WHITE);
+            } else if ((blackChips & (1L << square)) != 0) {
+                result ^= getChipKey(square, Color.BLACK);
+            }
+        }
+
+        return result;
+    }
+
+    /* ===== private ===== */
+
+    /**
+     * Генератор splitmix64: детерминированные ключи для одинаковых хешей между запусками.
+     */
+    private static long nextRandom(long state) {
+        long z = state + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}